@@ -0,0 +1,127 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Times benchmark cases the way JMH does, scaled down: a few warmup iterations to let the JIT settle, then
+ * measured iterations of fixed length, reporting the mean time per operation and its spread.
+ * Results of every operation go to a sink so the JIT can't drop the work as dead code.
+ *
+ * Options, after an optional regex that selects cases by name:
+ * -wi warmup iterations, -i measured iterations, -r milliseconds per iteration.
+ */
+public final class BenchmarkRunner {
+
+	/**
+	 * One timed operation
+	 */
+	public interface Case {
+		/**
+		 * @return a result of the work, consumed so it can't be optimized away
+		 */
+		Object run() throws Exception;
+	}
+
+	// Mixed with every result, and read at the end, so no result is unused
+	private static volatile int sink;
+
+	private final List<String> names = new ArrayList<>();
+	private final List<Case> cases = new ArrayList<>();
+
+	private Pattern filter = Pattern.compile(".*");
+	private int warmupIterations = 3;
+	private int iterations = 5;
+	private long iterationMillis = 1000;
+
+	/**
+	 * Reads the command line options
+	 * @param args the regex and options
+	 * @return this runner
+	 */
+	public BenchmarkRunner options(String[] args){
+		for(int i = 0; i < args.length; i++){
+			switch(args[i]){
+				case "-wi":
+					warmupIterations = Integer.parseInt(args[++i]);
+					break;
+				case "-i":
+					iterations = Integer.parseInt(args[++i]);
+					break;
+				case "-r":
+					iterationMillis = Long.parseLong(args[++i]);
+					break;
+				default:
+					filter = Pattern.compile(args[i]);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @param name the case's name, made of its benchmark and parameters
+	 * @return if the case was selected on the command line
+	 */
+	public boolean selected(String name){
+		return filter.matcher(name).find();
+	}
+
+	/**
+	 * Adds a case, if it was selected
+	 * @param name the case's name, made of its benchmark and parameters
+	 * @param benchmark the operation to time
+	 */
+	public void add(String name, Case benchmark){
+		if(selected(name)){
+			names.add(name);
+			cases.add(benchmark);
+		}
+	}
+
+	/**
+	 * Runs every case added, printing a line for each
+	 */
+	public void run() throws Exception {
+		System.out.printf("%-60s %14s %12s%n", "Benchmark", "ns/op", "error");
+		for(int c = 0; c < cases.size(); c++){
+			final Case benchmark = cases.get(c);
+			for(int i = 0; i < warmupIterations; i++){
+				iteration(benchmark);
+			}
+			final double[] results = new double[iterations];
+			double mean = 0;
+			for(int i = 0; i < iterations; i++){
+				results[i] = iteration(benchmark);
+				mean += results[i] / iterations;
+			}
+			double variance = 0;
+			for(double result : results){
+				variance += (result - mean) * (result - mean) / Math.max(1, iterations - 1);
+			}
+			System.out.printf("%-60s %14.1f %12.1f%n", names.get(c), mean, Math.sqrt(variance));
+		}
+		if(sink == 42){
+			System.out.println();
+		}
+	}
+
+	/**
+	 * Runs a case until the iteration time is up, at least once
+	 * @return the mean time per operation, in nanoseconds
+	 */
+	private double iteration(Case benchmark) throws Exception {
+		final long start = System.nanoTime();
+		final long end = start + iterationMillis * 1000000;
+		long operations = 0;
+		long now;
+		do {
+			consume(benchmark.run());
+			operations++;
+			now = System.nanoTime();
+		} while(now < end);
+		return (double) (now - start) / operations;
+	}
+
+	private static void consume(Object result){
+		sink ^= System.identityHashCode(result);
+	}
+}
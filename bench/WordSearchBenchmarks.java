@@ -0,0 +1,259 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Benchmarks of search, searchForAll, make and grid I/O over the shapes of grid and word list we see in
+ * practice. Every input comes from a fixed seed, so runs are comparable across changes.
+ * Run with {@link BenchmarkRunner}'s options, e.g. "search/200" to time only searches in 200^3 grids.
+ */
+public final class WordSearchBenchmarks {
+
+	private static final long SEED = 0x5EED;
+
+	// Grids are filled from 'a' to 'y', so words ending in 'z' are certainly absent
+	private static final int ALPHABET = 25;
+
+	private static final int[] SEARCH_SIZES = { 50, 100, 200 };
+	private static final int[] WORD_COUNTS = { 10, 100, 1000, 10000 };
+	private static final int[] MAKE_SIZES = { 10, 50, 100, 200 };
+	private static final int[] DENSE_MAKE_SIZES = { 10, 20 };
+	private static final int[] IO_SIZES = { 50, 100, 200 };
+
+	private WordSearchBenchmarks(){
+	}
+
+	public static void main(String[] args) throws Exception {
+		final BenchmarkRunner runner = new BenchmarkRunner().options(args);
+		final WordSearch3D wordSearch = new WordSearch3D();
+		addSearch(runner, wordSearch);
+		addSearchForAll(runner, wordSearch);
+		addMake(runner, wordSearch);
+		addIO(runner, wordSearch);
+		runner.run();
+	}
+
+	/**
+	 * search for present and absent, short and long words
+	 */
+	private static void addSearch(BenchmarkRunner runner, final WordSearch3D wordSearch){
+		for(int size : SEARCH_SIZES){
+			if(!runner.selected("search/" + size + "/")){
+				continue;
+			}
+			final SplittableRandom rng = new SplittableRandom(SEED + size);
+			final Grid3D grid = randomGrid(size, rng);
+			for(int length : new int[] { 5, 20 }){
+				final String present = presentWord(grid, length, rng);
+				final String absent = absentWord(length, rng);
+				final String kind = length == 5 ? "short" : "long";
+				runner.add("search/" + size + "/present/" + kind, new BenchmarkRunner.Case() {
+					@Override
+					public Object run(){
+						return wordSearch.search(grid, present);
+					}
+				});
+				runner.add("search/" + size + "/absent/" + kind, new BenchmarkRunner.Case() {
+					@Override
+					public Object run(){
+						return wordSearch.search(grid, absent);
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * searchForAll for lists of 10 to 10,000 words, half of them present, in a 100^3 grid
+	 */
+	private static void addSearchForAll(BenchmarkRunner runner, final WordSearch3D wordSearch){
+		if(!runner.selected("searchForAll/")){
+			return;
+		}
+		final SplittableRandom rng = new SplittableRandom(SEED);
+		final Grid3D grid = randomGrid(100, rng);
+		for(int count : WORD_COUNTS){
+			final String[] words = mixedWords(grid, count, rng);
+			runner.add("searchForAll/" + count, new BenchmarkRunner.Case() {
+				@Override
+				public Object run(){
+					return wordSearch.searchForAll(grid, words);
+				}
+			});
+		}
+	}
+
+	/**
+	 * make with a few words in grids of every size, and with words filling a large share of small grids
+	 */
+	private static void addMake(BenchmarkRunner runner, final WordSearch3D wordSearch){
+		for(int size : MAKE_SIZES){
+			final String[] words = randomWords(20, 8, 8, new SplittableRandom(SEED + size));
+			addMake(runner, wordSearch, "make/" + size + "/sparse", words, size);
+		}
+		for(int size : DENSE_MAKE_SIZES){
+			// Letters enough for a third of the cells
+			final int length = Math.min(size, 8);
+			final String[] words = randomWords(size * size * size / 3 / length, length, length, new SplittableRandom(SEED + size));
+			addMake(runner, wordSearch, "make/" + size + "/dense", words, size);
+		}
+	}
+
+	private static void addMake(BenchmarkRunner runner, final WordSearch3D wordSearch, String name, final String[] words, final int size){
+		runner.add(name, new BenchmarkRunner.Case() {
+			@Override
+			public Object run(){
+				return wordSearch.make(words, size, size, size, SEED);
+			}
+		});
+	}
+
+	/**
+	 * Exporting and loading grids and locations in the text and binary formats
+	 */
+	private static void addIO(BenchmarkRunner runner, final WordSearch3D wordSearch) throws IOException {
+		for(int size : IO_SIZES){
+			if(!runner.selected("io/" + size + "/")){
+				continue;
+			}
+			final SplittableRandom rng = new SplittableRandom(SEED + size);
+			final Grid3D grid = randomGrid(size, rng);
+			final char[][][] array = grid.toArray();
+			final int[][][] locations = wordSearch.searchForAll(grid, mixedWords(grid, 1000, rng));
+
+			final File gridText = tempFile("grid", ".txt");
+			final File gridBinary = tempFile("grid", ".bin");
+			final File locationsText = tempFile("locations", ".txt");
+			final File locationsBinary = tempFile("locations", ".bin");
+			WordSearch3D.exportGrid(array, gridText.getPath());
+			BinaryGridIO.write(grid, gridBinary);
+			WordSearch3D.exportLocations(locations, locationsText.getPath());
+			BinaryLocationsIO.write(locations, locationsBinary);
+
+			final String prefix = "io/" + size + "/";
+			runner.add(prefix + "exportGrid", new BenchmarkRunner.Case() {
+				@Override
+				public Object run(){
+					WordSearch3D.exportGrid(array, gridText.getPath());
+					return gridText;
+				}
+			});
+			runner.add(prefix + "exportLocations", new BenchmarkRunner.Case() {
+				@Override
+				public Object run(){
+					WordSearch3D.exportLocations(locations, locationsText.getPath());
+					return locationsText;
+				}
+			});
+			runner.add(prefix + "writeBinaryGrid", new BenchmarkRunner.Case() {
+				@Override
+				public Object run() throws IOException {
+					BinaryGridIO.write(grid, gridBinary);
+					return gridBinary;
+				}
+			});
+			runner.add(prefix + "readTextGrid", new BenchmarkRunner.Case() {
+				@Override
+				public Object run() throws IOException {
+					return TextGridIO.readGrid(gridText);
+				}
+			});
+			runner.add(prefix + "readTextLocations", new BenchmarkRunner.Case() {
+				@Override
+				public Object run() throws IOException {
+					return TextGridIO.readLocations(locationsText);
+				}
+			});
+			runner.add(prefix + "readBinaryGrid", new BenchmarkRunner.Case() {
+				@Override
+				public Object run() throws IOException {
+					return BinaryGridIO.read(gridBinary);
+				}
+			});
+			runner.add(prefix + "readBinaryLocations", new BenchmarkRunner.Case() {
+				@Override
+				public Object run() throws IOException {
+					return BinaryLocationsIO.read(locationsBinary);
+				}
+			});
+			runner.add(prefix + "mapBinaryGrid", new BenchmarkRunner.Case() {
+				@Override
+				public Object run() throws IOException {
+					// Touch every cell, since mapping alone reads nothing
+					final BufferGrid mapped = BinaryGridIO.map(gridBinary);
+					int sum = 0;
+					for(int index = 0; index < mapped.size(); index++){
+						sum += mapped.get(index);
+					}
+					return sum;
+				}
+			});
+		}
+	}
+
+	/**
+	 * @return a grid of random letters from 'a' to 'y'
+	 */
+	private static Grid3D randomGrid(int size, SplittableRandom rng){
+		final Grid3D grid = new Grid3D(size, size, size);
+		for(int index = 0; index < grid.size(); index++){
+			grid.set(index, (char) ('a' + rng.nextInt(ALPHABET)));
+		}
+		return grid;
+	}
+
+	/**
+	 * @return a word read off the grid along a random in-bounds line
+	 */
+	private static String presentWord(Grid3D grid, int length, SplittableRandom rng){
+		final PlacementTable table = new PlacementTable(grid, length);
+		final long placement = rng.nextLong(table.size());
+		final int direction = table.direction(placement);
+		final int delta = grid.delta(direction);
+		final StringBuilder sb = new StringBuilder(length);
+		for(int i = 0, index = table.start(placement, direction); i < length; i++, index += delta){
+			sb.append(grid.get(index));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return a word that can't be in a grid from {@link #randomGrid}, since it ends in 'z'
+	 */
+	private static String absentWord(int length, SplittableRandom rng){
+		return randomWords(1, length - 1, length - 1, rng)[0] + 'z';
+	}
+
+	/**
+	 * @return words of 5 to 12 letters, alternately present in the grid and absent
+	 */
+	private static String[] mixedWords(Grid3D grid, int count, SplittableRandom rng){
+		final String[] words = new String[count];
+		for(int i = 0; i < count; i++){
+			final int length = 5 + rng.nextInt(8);
+			words[i] = i % 2 == 0 ? presentWord(grid, length, rng) : absentWord(length, rng);
+		}
+		return words;
+	}
+
+	/**
+	 * @return random words of letters from 'a' to 'y'
+	 */
+	private static String[] randomWords(int count, int minLength, int maxLength, SplittableRandom rng){
+		final String[] words = new String[count];
+		for(int i = 0; i < count; i++){
+			final char[] word = new char[minLength + rng.nextInt(maxLength - minLength + 1)];
+			for(int j = 0; j < word.length; j++){
+				word[j] = (char) ('a' + rng.nextInt(ALPHABET));
+			}
+			words[i] = new String(word);
+		}
+		return words;
+	}
+
+	private static File tempFile(String prefix, String suffix) throws IOException {
+		final File file = File.createTempFile(prefix, suffix);
+		file.deleteOnExit();
+		return file;
+	}
+}
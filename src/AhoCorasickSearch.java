@@ -0,0 +1,302 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds many words in a grid at once. The words are compiled into an Aho-Corasick automaton,
+ * and every line of the grid is walked through it exactly once per direction, so the cost is
+ * proportional to the size of the grid rather than to the number of words.
+ *
+ * Hits are the same ones {@link WordSearch3D#search(Grid3D, String)} would return: for each word,
+ * the match with the lowest start cell (in x, y, z order) and then the lowest direction.
+ * Blank ('\u0000') cells are not treated as wildcards here, so callers should only use this on
+ * grids without blanks.
+ */
+public class AhoCorasickSearch {
+
+	// Sentinel for "no node" in the node tables
+	private static final int NONE = -1;
+
+	// The words as given, and the unique word each one maps to
+	private final String[] words;
+	private final int[] uniqueIds;
+	private final String[] uniqueWords;
+
+	// Maps a char to its column in the transition table; column 0 is every char not in any word
+	private final Map<Character, Integer> alphabet = new HashMap<Character, Integer>();
+	private final int[] asciiColumns = new int[128];
+	private final int alphabetSize;
+
+	// transitions[node * alphabetSize + column] is the next node, with failure links already folded in
+	private int[] transitions;
+
+	// Unique word id that ends at each node, or NONE
+	private int[] terminal;
+
+	// Nearest node on the failure chain that ends a word, or NONE
+	private int[] outputLink;
+
+	private int nodeCount;
+
+	/**
+	 * Builds the automaton for a list of words
+	 * @param words the words to search for; duplicates and empty words are allowed
+	 */
+	public AhoCorasickSearch(String[] words){
+		this.words = words.clone();
+
+		// Collapse duplicate words so each is only matched once
+		final Map<String, Integer> unique = new HashMap<String, Integer>();
+		uniqueIds = new int[words.length];
+		for(int i = 0; i < words.length; i++){
+			Integer id = unique.get(words[i]);
+			if(id == null){
+				id = unique.size();
+				unique.put(words[i], id);
+			}
+			uniqueIds[i] = id;
+		}
+		uniqueWords = new String[unique.size()];
+		for(Map.Entry<String, Integer> entry : unique.entrySet()){
+			uniqueWords[entry.getValue()] = entry.getKey();
+		}
+
+		// Number the distinct characters, leaving column 0 for everything else
+		int columns = 1;
+		int totalLength = 0;
+		for(String word : uniqueWords){
+			totalLength += word.length();
+			for(int i = 0; i < word.length(); i++){
+				final char c = word.charAt(i);
+				if(!alphabet.containsKey(c)){
+					alphabet.put(c, columns);
+					if(c < asciiColumns.length){
+						asciiColumns[c] = columns;
+					}
+					columns++;
+				}
+			}
+		}
+		alphabetSize = columns;
+
+		buildTrie(totalLength + 1);
+		buildFailureLinks();
+	}
+
+	/**
+	 * Searches for all of the words in the grid in a single pass over its lines
+	 * @param grid the grid to search
+	 * @return for each word (in the order given to the constructor), the (3-d) locations of its letters,
+	 * or null if it is not in the grid
+	 */
+	public int[][][] searchForAll(Grid3D grid){
+		final long[] best = newHits();
+		for(int d = 0; d < Grid3D.DIRECTIONS.length; d++){
+			scanLines(grid, d, 0, 0, grid.getSizeX(), best);
+		}
+		return toLocations(grid, best);
+	}
+
+	/**
+	 * @return a buffer of the best hit of each word for {@link #scanLines}, holding no hits yet
+	 */
+	long[] newHits(){
+		final long[] best = new long[uniqueWords.length];
+		Arrays.fill(best, Long.MAX_VALUE);
+		return best;
+	}
+
+	/**
+	 * Keeps the better of two hits for each word, so the lines of a grid can be scanned in parts and the
+	 * parts' hits combined into the ones a single pass would find
+	 * @param best hits to keep the better ones in
+	 * @param other hits from another part of the grid
+	 */
+	static void mergeHits(long[] best, long[] other){
+		for(int id = 0; id < best.length; id++){
+			best[id] = Math.min(best[id], other[id]);
+		}
+	}
+
+	/**
+	 * Lists the locations of each word from the best hits found
+	 * @param grid the grid that was scanned
+	 * @param best the best hit of each word, from {@link #scanLines}
+	 * @return for each word (in the order given to the constructor), the (3-d) locations of its letters,
+	 * or null if it is not in the grid
+	 */
+	int[][][] toLocations(Grid3D grid, long[] best){
+		final int[][][] locations = new int[words.length][][];
+		for(int i = 0; i < words.length; i++){
+			final long key = best[uniqueIds[i]];
+			if(key != Long.MAX_VALUE){
+				locations[i] = toLocations(grid, (int) (key / Grid3D.DIRECTIONS.length), (int) (key % Grid3D.DIRECTIONS.length), words[i].length());
+			}
+		}
+		return locations;
+	}
+
+	/**
+	 * Walks the lines of the grid running in one direction through the automaton, taking only the lines whose
+	 * first cell has a coordinate along one axis in a range
+	 * @param grid the grid to search
+	 * @param direction index into {@link Grid3D#DIRECTIONS}
+	 * @param axis 0, 1 or 2, for the x, y or z of the lines' first cells
+	 * @param from lowest coordinate of the first cells along the axis
+	 * @param to coordinate after the highest
+	 * @param best lowest (start * 26 + direction) hit found so far for each unique word
+	 */
+	void scanLines(Grid3D grid, int direction, int axis, int from, int to, long[] best){
+		final int[] dir = Grid3D.DIRECTIONS[direction];
+		final int delta = grid.delta(direction);
+		final int[] lo = { 0, 0, 0 };
+		final int[] hi = { grid.getSizeX(), grid.getSizeY(), grid.getSizeZ() };
+		lo[axis] = from;
+		hi[axis] = to;
+
+		for(int x = lo[0]; x < hi[0]; x++){
+			for(int y = lo[1]; y < hi[1]; y++){
+				for(int z = lo[2]; z < hi[2]; z++){
+
+					// Lines start at the cells whose predecessor in this direction is off the grid
+					if(grid.isInBounds(x - dir[0], y - dir[1], z - dir[2])){
+						continue;
+					}
+
+					int state = 0;
+					int index = grid.index(x, y, z);
+					int cx = x, cy = y, cz = z;
+					while(grid.isInBounds(cx, cy, cz)){
+						state = transitions[state * alphabetSize + column(grid.get(index))];
+
+						// Report every word ending here
+						int match = terminal[state] != NONE ? state : outputLink[state];
+						while(match != NONE){
+							final int id = terminal[match];
+							final int start = index - (uniqueWords[id].length() - 1) * delta;
+							final long key = (long) start * Grid3D.DIRECTIONS.length + direction;
+							if(key < best[id]){
+								best[id] = key;
+							}
+							match = outputLink[match];
+						}
+
+						index += delta;
+						cx += dir[0];
+						cy += dir[1];
+						cz += dir[2];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the transition table column of a character
+	 */
+	private int column(char c){
+		if(c < asciiColumns.length){
+			return asciiColumns[c];
+		}
+		final Integer column = alphabet.get(c);
+		return column == null ? 0 : column;
+	}
+
+	/**
+	 * Inserts every unique word into the trie
+	 * @param maxNodes upper bound on the number of trie nodes
+	 */
+	private void buildTrie(int maxNodes){
+		transitions = new int[maxNodes * alphabetSize];
+		Arrays.fill(transitions, NONE);
+		terminal = new int[maxNodes];
+		Arrays.fill(terminal, NONE);
+		outputLink = new int[maxNodes];
+		Arrays.fill(outputLink, NONE);
+		nodeCount = 1;
+
+		for(int id = 0; id < uniqueWords.length; id++){
+			final String word = uniqueWords[id];
+
+			// Empty words can never be found
+			if(word.isEmpty()){
+				continue;
+			}
+
+			int node = 0;
+			for(int i = 0; i < word.length(); i++){
+				final int slot = node * alphabetSize + column(word.charAt(i));
+				if(transitions[slot] == NONE){
+					transitions[slot] = nodeCount++;
+				}
+				node = transitions[slot];
+			}
+			terminal[node] = id;
+		}
+	}
+
+	/**
+	 * Computes failure links breadth first and folds them into the transition table,
+	 * so the search never has to follow a failure link
+	 */
+	private void buildFailureLinks(){
+		final int[] failure = new int[nodeCount];
+		final int[] queue = new int[nodeCount];
+		int head = 0;
+		int tail = 0;
+
+		// Children of the root fail back to the root; missing edges from the root loop back to it
+		for(int c = 0; c < alphabetSize; c++){
+			final int child = transitions[c];
+			if(child == NONE){
+				transitions[c] = 0;
+			} else {
+				failure[child] = 0;
+				queue[tail++] = child;
+			}
+		}
+
+		while(head < tail){
+			final int node = queue[head++];
+
+			// The nearest word ending on the failure chain
+			final int fail = failure[node];
+			outputLink[node] = terminal[fail] != NONE ? fail : outputLink[fail];
+
+			for(int c = 0; c < alphabetSize; c++){
+				final int slot = node * alphabetSize + c;
+				final int child = transitions[slot];
+				final int fallback = transitions[fail * alphabetSize + c];
+				if(child == NONE){
+					transitions[slot] = fallback;
+				} else {
+					failure[child] = fallback;
+					queue[tail++] = child;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lists the (3-d) locations of the letters of a word
+	 * @param grid the grid the word is in
+	 * @param start flat index of the first letter
+	 * @param direction index into {@link Grid3D#DIRECTIONS}
+	 * @param length length of the word
+	 * @return the locations of each letter
+	 */
+	private static int[][] toLocations(Grid3D grid, int start, int direction, int length){
+		final int[] dir = Grid3D.DIRECTIONS[direction];
+		final int x = grid.x(start);
+		final int y = grid.y(start);
+		final int z = grid.z(start);
+
+		final int[][] result = new int[length][3];
+		for(int i = 0; i < length; i++){
+			result[i][0] = x + i * dir[0];
+			result[i][1] = y + i * dir[1];
+			result[i][2] = z + i * dir[2];
+		}
+		return result;
+	}
+}
@@ -0,0 +1,236 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates many puzzles in one go, spread across a fixed pool of threads.
+ * Jobs are read one line at a time and only a bounded number are queued or running at once, so memory use
+ * doesn't grow with the length of the job list. Each thread keeps a scratch grid that it clears and reuses
+ * for every job of the same size, and each puzzle is written out as soon as it is finished.
+ * Every job gets its own random stream, split off in job order from one seed, so the same job list and seed
+ * give the same puzzles however the jobs are scheduled.
+ *
+ * A job line is the three sizes followed by the words, separated by whitespace, e.g. "10 10 10 apple pear".
+ * Blank lines and lines starting with # are skipped. For each job the output gets a line "job n", where n
+ * counts job lines from 0, followed by the grid in the same format as {@link WordSearch3D#exportGrid}, or
+ * the line "job n failed" if no grid could be made. Jobs are written in the order they finish.
+ * A malformed job line stops the batch: no more jobs are started, but those already running finish and are
+ * written before the error is thrown.
+ */
+public class BatchGenerator {
+
+	private final WordSearch3D wordSearch;
+	private final int threads;
+	private final int maxInFlight;
+	private final long maxChecks;
+	private final long seed;
+
+	// Each thread's reusable grid
+	private final ThreadLocal<Grid3D> scratch = new ThreadLocal<>();
+
+	/**
+	 * @param wordSearch used to fill in the grids once the words are placed
+	 * @param threads number of puzzles to generate at once, at least 1
+	 * @param maxInFlight most jobs to hold in memory at once, at least threads
+	 * @param maxChecks most placements to check for each puzzle before giving up on it
+	 * @param seed seed the jobs' random streams are split from
+	 */
+	public BatchGenerator(WordSearch3D wordSearch, int threads, int maxInFlight, long maxChecks, long seed){
+		if(threads < 1){
+			throw new IllegalArgumentException("Threads must be at least 1: " + threads);
+		}
+		if(maxInFlight < threads){
+			throw new IllegalArgumentException("Jobs in flight must be at least the number of threads: " + maxInFlight);
+		}
+		this.wordSearch = wordSearch;
+		this.threads = threads;
+		this.maxInFlight = maxInFlight;
+		this.maxChecks = maxChecks;
+		this.seed = seed;
+	}
+
+	/**
+	 * Generates a puzzle for every job read from the input, writing each one to the output as it finishes
+	 * @param jobs job lines, read until the end
+	 * @param out where the puzzles are written
+	 * @return the number of puzzles generated; jobs that failed are not counted
+	 * @throws IOException if the jobs can't be read or the puzzles can't be written
+	 * @throws IllegalArgumentException if a job line is malformed, once the jobs before it are written
+	 */
+	public int generate(BufferedReader jobs, Writer out) throws IOException {
+		final ExecutorService pool = Executors.newFixedThreadPool(threads);
+		final Semaphore inFlight = new Semaphore(maxInFlight);
+		final AtomicInteger generated = new AtomicInteger();
+		final List<IOException> writeErrors = new ArrayList<>();
+		final SplittableRandom root = new SplittableRandom(seed);
+		IllegalArgumentException malformed = null;
+
+		try {
+			int number = 0;
+			String line;
+			while((line = jobs.readLine()) != null){
+				final String trimmed = line.trim();
+				if(trimmed.isEmpty() || trimmed.startsWith("#")){
+					continue;
+				}
+				final Job job;
+				try {
+					job = Job.parse(number++, trimmed);
+				} catch (IllegalArgumentException e) {
+					malformed = e;
+					break;
+				}
+				final SplittableRandom rng = root.split();
+
+				// Wait for room before reading further, so the job list is never all in memory
+				inFlight.acquire();
+				pool.execute(new Runnable() {
+					@Override
+					public void run(){
+						try {
+
+							// A job that throws fails like one with no grid, rather than vanishing from the output
+							String result;
+							try {
+								result = generate(job, rng);
+							} catch (RuntimeException e) {
+								result = null;
+							}
+							synchronized(out){
+								out.write(result != null ? result : "job " + job.number + " failed\n");
+							}
+							if(result != null){
+								generated.incrementAndGet();
+							}
+						} catch (IOException e) {
+							synchronized(writeErrors){
+								writeErrors.add(e);
+							}
+						} finally {
+							inFlight.release();
+						}
+					}
+				});
+			}
+
+			// Wait for the last jobs to finish
+			inFlight.acquire(maxInFlight);
+			inFlight.release(maxInFlight);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			pool.shutdownNow();
+			throw new IOException("Interrupted while generating puzzles", e);
+		} finally {
+			pool.shutdown();
+		}
+
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if(!writeErrors.isEmpty()){
+			throw writeErrors.get(0);
+		}
+		out.flush();
+		if(malformed != null){
+			throw malformed;
+		}
+		return generated.get();
+	}
+
+	/**
+	 * Generates one puzzle in this thread's scratch grid
+	 * @param job the job
+	 * @param rng the job's random stream
+	 * @return the job's output, or null if no grid could be made
+	 */
+	private String generate(Job job, SplittableRandom rng){
+		Grid3D grid = scratch.get();
+		if(grid == null || grid.getSizeX() != job.sizeX || grid.getSizeY() != job.sizeY || grid.getSizeZ() != job.sizeZ){
+			grid = new Grid3D(job.sizeX, job.sizeY, job.sizeZ);
+			scratch.set(grid);
+		}
+
+		try {
+			final PlacementEngine engine = new PlacementEngine(grid, job.words, rng, maxChecks);
+			engine.setListener(wordSearch.getMetricsListener());
+			if(!engine.place()){
+				return null;
+			}
+			wordSearch.fillGrid(grid, rng);
+			return format(job.number, grid);
+		} finally {
+			grid.clear();
+		}
+	}
+
+	/**
+	 * @return a job's header line followed by the grid, as exportGrid writes it
+	 */
+	private static String format(int number, Grid3D grid){
+		final StringBuilder sb = new StringBuilder(grid.size() * 2 + 32);
+		sb.append("job ").append(number).append('\n');
+		TextGridIO.appendGrid(grid, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * One line of the job list
+	 */
+	static final class Job {
+		final int number;
+		final int sizeX;
+		final int sizeY;
+		final int sizeZ;
+		final String[] words;
+
+		Job(int number, int sizeX, int sizeY, int sizeZ, String[] words){
+			this.number = number;
+			this.sizeX = sizeX;
+			this.sizeY = sizeY;
+			this.sizeZ = sizeZ;
+			this.words = words;
+		}
+
+		/**
+		 * Reads a job from its line
+		 * @param number which job this is
+		 * @param line the sizes and words, separated by whitespace
+		 * @return the job
+		 * @throws IllegalArgumentException if the sizes are missing, aren't positive numbers, or make a grid with
+		 * more cells than a {@link Grid3D} can hold
+		 */
+		static Job parse(int number, String line){
+			final String[] parts = line.split("\\s+");
+			if(parts.length < 3){
+				throw new IllegalArgumentException("Job " + number + " needs three sizes: " + line);
+			}
+			final int[] sizes = new int[3];
+			for(int i = 0; i < 3; i++){
+				try {
+					sizes[i] = Integer.parseInt(parts[i]);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Job " + number + " has a bad size: " + parts[i], e);
+				}
+				if(sizes[i] <= 0){
+					throw new IllegalArgumentException("Job " + number + " has a size below 1: " + parts[i]);
+				}
+			}
+			if((long) sizes[0] * sizes[1] * sizes[2] > Integer.MAX_VALUE){
+				throw new IllegalArgumentException("Job " + number + " has too many cells: " + parts[0] + "x" + parts[1] + "x" + parts[2]);
+			}
+			final String[] words = new String[parts.length - 3];
+			System.arraycopy(parts, 3, words, 0, words.length);
+			return new Job(number, sizes[0], sizes[1], sizes[2], words);
+		}
+	}
+}
@@ -0,0 +1,220 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads and writes grids in a compact binary format: a 20 byte header, then one byte per cell in
+ * {@link Grid3D} order. The header is the magic number "WS3D", the format version, and the three sizes,
+ * each a big-endian int. Cells hold characters up to 255, with 0 for a blank.
+ * That is half the size of grid.txt, and a grid can be mapped and used in place instead of parsed.
+ */
+public final class BinaryGridIO {
+
+	/** "WS3D" in ASCII */
+	public static final int MAGIC = 0x57533344;
+
+	public static final int VERSION = 1;
+
+	public static final int HEADER_SIZE = 20;
+
+	// Bytes moved to or from the file at a time
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	private BinaryGridIO(){
+	}
+
+	/**
+	 * Writes a grid to a file
+	 * @param grid the grid
+	 * @param file the file to write
+	 * @throws IOException if the file can't be written
+	 * @throws IllegalArgumentException if a cell holds a character above 255
+	 */
+	public static void write(Grid3D grid, File file) throws IOException {
+		try (final FileChannel channel = new FileOutputStream(file).getChannel()) {
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(grid.getSizeX()).putInt(grid.getSizeY()).putInt(grid.getSizeZ());
+			for(int index = 0; index < grid.size(); index++){
+				if(!buffer.hasRemaining()){
+					drain(channel, buffer);
+				}
+				final char c = grid.get(index);
+				if(c > 0xFF){
+					throw new IllegalArgumentException("Character doesn't fit in a byte: " + c);
+				}
+				buffer.put((byte) c);
+			}
+			drain(channel, buffer);
+		}
+	}
+
+	/**
+	 * Reads a grid from a file onto the heap
+	 * @param file the file to read
+	 * @return the grid
+	 * @throws IOException if the file can't be read or isn't a grid
+	 */
+	public static Grid3D read(File file) throws IOException {
+		try (final FileChannel channel = new FileInputStream(file).getChannel()) {
+			final int[] sizes = readWholeHeader(channel);
+			final Grid3D grid = new Grid3D(sizes[0], sizes[1], sizes[2]);
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+			int index = 0;
+			while(index < grid.size()){
+				buffer.clear();
+				buffer.limit((int) Math.min(buffer.capacity(), (long) grid.size() - index));
+				while(buffer.hasRemaining()){
+					if(channel.read(buffer) < 0){
+						throw new IOException("Grid file ends after " + index + " of " + grid.size() + " cells: " + file);
+					}
+				}
+				buffer.flip();
+				while(buffer.hasRemaining()){
+					grid.set(index++, (char) (buffer.get() & 0xFF));
+				}
+			}
+			return grid;
+		}
+	}
+
+	/**
+	 * Maps a grid file into memory, read-only. The grid reads straight from the mapping, so nothing is
+	 * copied and the operating system only loads the parts of the file that are used.
+	 * @param file the file to map
+	 * @return the grid
+	 * @throws IOException if the file can't be read or isn't a grid
+	 */
+	public static BufferGrid map(File file) throws IOException {
+		try (final FileChannel channel = new FileInputStream(file).getChannel()) {
+			final int[] sizes = readWholeHeader(channel);
+
+			// The mapping stays valid after the channel is closed
+			final long cells = (long) sizes[0] * sizes[1] * sizes[2];
+			return new BufferGrid(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, cells), sizes[0], sizes[1], sizes[2]);
+		}
+	}
+
+	/**
+	 * Maps a grid file into memory for reading and writing. Changes to the grid are changes to the file,
+	 * and are seen by every other process that maps it.
+	 * @param file the file to map
+	 * @return the grid
+	 * @throws IOException if the file can't be read and written, or isn't a grid
+	 */
+	public static BufferGrid mapWritable(File file) throws IOException {
+		try (final RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			final FileChannel channel = raf.getChannel();
+			final int[] sizes = readWholeHeader(channel);
+			final long cells = (long) sizes[0] * sizes[1] * sizes[2];
+			return new BufferGrid(channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, cells), sizes[0], sizes[1], sizes[2]);
+		}
+	}
+
+	/**
+	 * Creates a grid file of blank cells and maps it for reading and writing, so a grid can be built in place
+	 * without ever being held on the heap
+	 * @param file the file to create, replacing any that exists
+	 * @param sizeX size of the grid along first dimension
+	 * @param sizeY size of the grid along second dimension
+	 * @param sizeZ size of the grid along third dimension
+	 * @return the grid
+	 * @throws IOException if the file can't be written
+	 */
+	public static BufferGrid create(File file, int sizeX, int sizeY, int sizeZ) throws IOException {
+		if(sizeX < 0 || sizeY < 0 || sizeZ < 0 || (long) sizeX * sizeY * sizeZ > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("Bad grid sizes: " + sizeX + "x" + sizeY + "x" + sizeZ);
+		}
+		try (final RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			final FileChannel channel = raf.getChannel();
+			final long cells = (long) sizeX * sizeY * sizeZ;
+			channel.truncate(0);
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putInt(sizeX).putInt(sizeY).putInt(sizeZ);
+			drain(channel, header);
+
+			// Mapping past the end of the file grows it, and the new bytes are zero, which is blank
+			return new BufferGrid(channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, cells), sizeX, sizeY, sizeZ);
+		}
+	}
+
+	/**
+	 * Checks if a file starts with the binary grid magic number
+	 * @param file the file to check
+	 * @return if the file looks like a binary grid
+	 * @throws IOException if the file can't be read
+	 */
+	public static boolean isBinaryGrid(File file) throws IOException {
+		try (final FileChannel channel = new FileInputStream(file).getChannel()) {
+			final ByteBuffer magic = ByteBuffer.allocate(4);
+			while(magic.hasRemaining()){
+				if(channel.read(magic) < 0){
+					return false;
+				}
+			}
+			return magic.getInt(0) == MAGIC;
+		}
+	}
+
+	/**
+	 * Reads and checks the header, leaving the channel at the first cell.
+	 * The file may hold more cells than fit in a {@link Grid3D}; see {@link StreamingSearch} for those.
+	 * @param channel channel positioned at the start of the file
+	 * @return the three sizes of the grid
+	 * @throws IOException if the header is missing, of another version, or doesn't match the file's length
+	 */
+	static int[] readHeader(FileChannel channel) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while(header.hasRemaining()){
+			if(channel.read(header) < 0){
+				throw new IOException("Grid file is too short for a header");
+			}
+		}
+		header.flip();
+		if(header.getInt() != MAGIC){
+			throw new IOException("Not a binary grid file");
+		}
+		final int version = header.getInt();
+		if(version != VERSION){
+			throw new IOException("Unsupported binary grid version: " + version);
+		}
+		final int[] sizes = { header.getInt(), header.getInt(), header.getInt() };
+		if(sizes[0] < 0 || sizes[1] < 0 || sizes[2] < 0){
+			throw new IOException("Bad grid sizes: " + sizes[0] + "x" + sizes[1] + "x" + sizes[2]);
+		}
+		try {
+			if(channel.size() < HEADER_SIZE + Math.multiplyExact((long) sizes[0] * sizes[1], (long) sizes[2])){
+				throw new IOException("Grid file is shorter than its sizes say");
+			}
+		} catch (ArithmeticException e) {
+			throw new IOException("Bad grid sizes: " + sizes[0] + "x" + sizes[1] + "x" + sizes[2], e);
+		}
+		return sizes;
+	}
+
+	/**
+	 * Reads the header of a grid that is to be held whole
+	 * @throws IOException as readHeader does, or if the grid has too many cells for a {@link Grid3D}
+	 */
+	private static int[] readWholeHeader(FileChannel channel) throws IOException {
+		final int[] sizes = readHeader(channel);
+		if((long) sizes[0] * sizes[1] * sizes[2] > Integer.MAX_VALUE){
+			throw new IOException("Grid is too large to hold whole: " + sizes[0] + "x" + sizes[1] + "x" + sizes[2]);
+		}
+		return sizes;
+	}
+
+	/**
+	 * Writes out everything put in the buffer, and empties it
+	 */
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,244 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads and writes word locations in a compact binary format. A word's letters always run in a straight
+ * line, so instead of every letter's coordinates, each word is stored as its start cell, direction and length.
+ * The file is a 12 byte header, holding the magic number "WS3L", the format version and the number of words,
+ * then one 17 byte record per word: the x, y and z of the first letter, the direction as an index into
+ * {@link Grid3D#DIRECTIONS} in one byte, and the length. Numbers are big-endian.
+ * As in locations.txt, only the words that were found are written.
+ * Since a record's length stands for letters that aren't in the file, reading checks that every letter has
+ * coordinates a grid could have and that there are at most {@link #MAX_LETTERS} in all, before making them.
+ * Writing checks the same things, and every word's direction, before it opens the file, so it never leaves
+ * behind a file that can't be read back.
+ */
+public final class BinaryLocationsIO {
+
+	/** "WS3L" in ASCII */
+	public static final int MAGIC = 0x5753334C;
+
+	public static final int VERSION = 1;
+
+	public static final int HEADER_SIZE = 12;
+
+	public static final int RECORD_SIZE = 17;
+
+	/** Most letters, over all the words, that a file is written with or read into */
+	public static final int MAX_LETTERS = 1 << 24;
+
+	// Bytes moved to or from the file at a time
+	private static final int CHUNK_SIZE = RECORD_SIZE * 4096;
+
+	private BinaryLocationsIO(){
+	}
+
+	/**
+	 * Writes the locations of the words that were found
+	 * @param locations for each word, the locations of its letters, or null if it wasn't found
+	 * @param file the file to write
+	 * @throws IOException if the file can't be written
+	 * @throws IllegalArgumentException if a word's letters don't run in a straight line from coordinates a grid
+	 * could have, or there are more than {@link #MAX_LETTERS} letters in all; the file is left as it was
+	 */
+	public static void write(int[][][] locations, File file) throws IOException {
+		// Work out every direction before the file is touched, so a bad word can't leave it half written
+		final byte[] directions = new byte[locations.length];
+		int found = 0;
+		long totalLetters = 0;
+		for(int i = 0; i < locations.length; i++){
+			final int[][] location = locations[i];
+			if(location == null){
+				continue;
+			}
+			found++;
+			totalLetters += location.length;
+			if(totalLetters > MAX_LETTERS){
+				throw new IllegalArgumentException("More than " + MAX_LETTERS + " letters to write");
+			}
+			final int direction = direction(location);
+			if(location.length > 0 && !onGrid(location[0][0], location[0][1], location[0][2], Grid3D.DIRECTIONS[direction], location.length)){
+				throw new IllegalArgumentException("Letters of word " + i + " aren't all at coordinates from 0 to " + Integer.MAX_VALUE);
+			}
+			directions[i] = (byte) direction;
+		}
+
+		try (final FileChannel channel = new FileOutputStream(file).getChannel()) {
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(found);
+			for(int i = 0; i < locations.length; i++){
+				final int[][] location = locations[i];
+				if(location == null){
+					continue;
+				}
+				if(buffer.remaining() < RECORD_SIZE){
+					drain(channel, buffer);
+				}
+				final int[] start = location.length > 0 ? location[0] : new int[3];
+				buffer.putInt(start[0]).putInt(start[1]).putInt(start[2]);
+				buffer.put(directions[i]).putInt(location.length);
+			}
+			drain(channel, buffer);
+		}
+	}
+
+	/**
+	 * Reads word locations back
+	 * @param file the file to read
+	 * @return for each word in the file, the (3-d) locations of its letters
+	 * @throws IOException if the file can't be read or isn't a locations file
+	 */
+	public static int[][][] read(File file) throws IOException {
+		try (final FileChannel channel = new FileInputStream(file).getChannel()) {
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+			buffer.limit(0);
+			fill(channel, buffer, HEADER_SIZE);
+			if(buffer.getInt() != MAGIC){
+				throw new IOException("Not a binary locations file");
+			}
+			final int version = buffer.getInt();
+			if(version != VERSION){
+				throw new IOException("Unsupported binary locations version: " + version);
+			}
+			final int count = buffer.getInt();
+			if(count < 0 || channel.size() - HEADER_SIZE != (long) count * RECORD_SIZE){
+				throw new IOException("Locations file doesn't hold the " + count + " records its word count says");
+			}
+
+			final int[][][] locations = new int[count][][];
+			long totalLetters = 0;
+			for(int i = 0; i < count; i++){
+				if(buffer.remaining() < RECORD_SIZE){
+					fill(channel, buffer, (int) Math.min(CHUNK_SIZE, (long) (count - i) * RECORD_SIZE));
+				}
+				final int x = buffer.getInt();
+				final int y = buffer.getInt();
+				final int z = buffer.getInt();
+				final int direction = buffer.get();
+				final int length = buffer.getInt();
+				if(direction < 0 || direction >= Grid3D.DIRECTIONS.length || length < 0){
+					throw new IOException("Bad record for word " + i);
+				}
+				final int[] dir = Grid3D.DIRECTIONS[direction];
+				totalLetters += length;
+				if(totalLetters > MAX_LETTERS || !onGrid(x, y, z, dir, length)){
+					throw new IOException("Bad length for word " + i + ": " + length);
+				}
+				final int[][] letters = new int[length][];
+				for(int j = 0; j < length; j++){
+					letters[j] = new int[] { x + j * dir[0], y + j * dir[1], z + j * dir[2] };
+				}
+				locations[i] = letters;
+			}
+			return locations;
+		}
+	}
+
+	/**
+	 * Converts a locations.txt file, as written by {@link WordSearch3D#exportLocations}, to the binary format
+	 * @param text the text file to read
+	 * @param binary the binary file to write
+	 * @throws IOException if either file can't be used, or the text file is malformed
+	 */
+	public static void convertText(File text, File binary) throws IOException {
+		final int[][][] locations = TextGridIO.readLocations(text);
+		try {
+			write(locations, binary);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Locations in " + text + " can't be stored as start, direction and length", e);
+		}
+	}
+
+	/**
+	 * Checks if a file starts with the binary locations magic number
+	 * @param file the file to check
+	 * @return if the file looks like binary locations
+	 * @throws IOException if the file can't be read
+	 */
+	public static boolean isBinaryLocations(File file) throws IOException {
+		try (final FileChannel channel = new FileInputStream(file).getChannel()) {
+			final ByteBuffer magic = ByteBuffer.allocate(4);
+			while(magic.hasRemaining()){
+				if(channel.read(magic) < 0){
+					return false;
+				}
+			}
+			return magic.getInt(0) == MAGIC;
+		}
+	}
+
+	/**
+	 * Checks that a word's first and last letters, and so every letter between, have coordinates from 0 to
+	 * Integer.MAX_VALUE
+	 */
+	private static boolean onGrid(int x, int y, int z, int[] dir, int length){
+		if(length == 0){
+			return true;
+		}
+		final long last = length - 1L;
+		final int[] start = { x, y, z };
+		for(int k = 0; k < 3; k++){
+			final long end = start[k] + last * dir[k];
+			if(start[k] < 0 || end < 0 || end > Integer.MAX_VALUE){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Works out the direction a word's letters run in
+	 * @param location the locations of the word's letters
+	 * @return the direction as an index into {@link Grid3D#DIRECTIONS}; 0 for words shorter than two letters
+	 * @throws IllegalArgumentException if the letters aren't neighbours in a straight line
+	 */
+	private static int direction(int[][] location){
+		if(location.length < 2){
+			return 0;
+		}
+		for(int d = 0; d < Grid3D.DIRECTIONS.length; d++){
+			final int[] dir = Grid3D.DIRECTIONS[d];
+			boolean matches = true;
+			for(int j = 1; j < location.length && matches; j++){
+				for(int k = 0; k < 3; k++){
+					if(location[j][k] != location[0][k] + j * dir[k]){
+						matches = false;
+					}
+				}
+			}
+			if(matches){
+				return d;
+			}
+		}
+		throw new IllegalArgumentException("Letters don't run in a straight line from " + Arrays.toString(location[0]));
+	}
+
+	/**
+	 * Moves any unread bytes to the front of the buffer and reads until at least the given number are ready
+	 */
+	private static void fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+		buffer.compact();
+		while(buffer.position() < needed){
+			if(channel.read(buffer) < 0){
+				throw new IOException("Locations file ends early");
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Writes out everything put in the buffer, and empties it
+	 */
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,113 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A grid whose cells are single bytes in a ByteBuffer, such as a file mapped into memory by
+ * {@link BinaryGridIO#map}. Nothing is copied onto the heap, so the grid can be searched straight from the
+ * buffer. A byte holds characters up to 255; storing anything higher is refused.
+ * With a direct or mapped buffer the cells live outside the Java heap, so even very large grids add nothing
+ * for the garbage collector to scan, and a grid mapped from a file can be shared with other processes.
+ */
+public final class BufferGrid extends Grid3D {
+
+	private final ByteBuffer bytes;
+
+	/**
+	 * Wraps a buffer whose first sizeX * sizeY * sizeZ bytes, from its current position, are the cells in
+	 * {@link Grid3D} order
+	 * @param bytes the buffer; read-only buffers give a read-only grid
+	 * @param sizeX size of the grid along first dimension
+	 * @param sizeY size of the grid along second dimension
+	 * @param sizeZ size of the grid along third dimension
+	 */
+	public BufferGrid(ByteBuffer bytes, int sizeX, int sizeY, int sizeZ){
+		super(sizeX, sizeY, sizeZ, false);
+		if(bytes.remaining() < size()){
+			throw new IllegalArgumentException("Buffer holds " + bytes.remaining() + " bytes, grid needs " + size());
+		}
+		this.bytes = bytes.slice();
+	}
+
+	/**
+	 * Creates an empty grid whose cells are outside the Java heap
+	 * @param sizeX size of the grid along first dimension
+	 * @param sizeY size of the grid along second dimension
+	 * @param sizeZ size of the grid along third dimension
+	 * @return the grid
+	 */
+	public static BufferGrid allocateDirect(int sizeX, int sizeY, int sizeZ){
+		if(sizeX < 0 || sizeY < 0 || sizeZ < 0 || (long) sizeX * sizeY * sizeZ > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("Bad grid sizes: " + sizeX + "x" + sizeY + "x" + sizeZ);
+		}
+		return new BufferGrid(ByteBuffer.allocateDirect(sizeX * sizeY * sizeZ), sizeX, sizeY, sizeZ);
+	}
+
+	@Override
+	public char[][][] toArray(){
+		final char[][][] result = new char[getSizeX()][getSizeY()][getSizeZ()];
+		int index = 0;
+		for(int x = 0; x < getSizeX(); x++){
+			for(int y = 0; y < getSizeY(); y++){
+				final char[] row = result[x][y];
+				for(int z = 0; z < row.length; z++){
+					row[z] = get(index++);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return a copy of the grid on the heap
+	 */
+	@Override
+	public Grid3D copy(){
+		final Grid3D result = new Grid3D(getSizeX(), getSizeY(), getSizeZ());
+		for(int index = 0; index < size(); index++){
+			result.set(index, get(index));
+		}
+		return result;
+	}
+
+	@Override
+	public char get(int index){
+		return (char) (bytes.get(index) & 0xFF);
+	}
+
+	@Override
+	public char get(int x, int y, int z){
+		return get(index(x, y, z));
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the character doesn't fit in a byte
+	 */
+	@Override
+	public void set(int index, char c){
+		if(c > 0xFF){
+			throw new IllegalArgumentException("Character doesn't fit in a byte: " + c);
+		}
+		bytes.put(index, (byte) c);
+	}
+
+	@Override
+	public void set(int x, int y, int z, char c){
+		set(index(x, y, z), c);
+	}
+
+	@Override
+	public boolean hasBlanks(){
+		for(int index = 0; index < size(); index++){
+			if(bytes.get(index) == 0){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void clear(){
+		for(int index = 0; index < size(); index++){
+			bytes.put(index, (byte) 0);
+		}
+	}
+}
@@ -0,0 +1,22 @@
+/**
+ * Lets one thread ask work running on another to stop early, such as a request handler giving up on a puzzle
+ * being made for it. Work checks the token now and then, so it stops soon after, not at once.
+ */
+public final class CancelToken {
+
+	private volatile boolean cancelled;
+
+	/**
+	 * Asks the work holding this token to stop
+	 */
+	public void cancel(){
+		cancelled = true;
+	}
+
+	/**
+	 * @return if {@link #cancel()} has been called
+	 */
+	public boolean isCancelled(){
+		return cancelled;
+	}
+}
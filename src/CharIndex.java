@@ -0,0 +1,66 @@
+import java.util.Arrays;
+
+/**
+ * Lists where each character occurs in a grid, so a search only has to visit the cells that
+ * match the first letter of a word. Built once per grid, in two passes over it.
+ * Positions are flat {@link Grid3D} indices in ascending order, which is the order search visits cells in.
+ */
+public final class CharIndex {
+
+	private static final int[] NO_POSITIONS = new int[0];
+
+	// The distinct characters in the grid, sorted, and the positions of each one
+	private final char[] keys;
+	private final int[][] positions;
+
+	/**
+	 * Indexes every cell of a grid
+	 * @param grid the grid to index
+	 */
+	public CharIndex(Grid3D grid){
+
+		// First count each character so the position lists can be allocated exactly
+		final int[] counts = new int[Character.MAX_VALUE + 1];
+		int distinct = 0;
+		for(int index = 0; index < grid.size(); index++){
+			if(counts[grid.get(index)]++ == 0){
+				distinct++;
+			}
+		}
+
+		keys = new char[distinct];
+		positions = new int[distinct][];
+		int key = 0;
+		for(int c = 0; c < counts.length; c++){
+			if(counts[c] > 0){
+				keys[key] = (char) c;
+				positions[key] = new int[counts[c]];
+				key++;
+			}
+		}
+
+		// Then fill in the positions, reusing counts as the fill level of each list
+		Arrays.fill(counts, 0);
+		for(int index = 0; index < grid.size(); index++){
+			final char c = grid.get(index);
+			positions[Arrays.binarySearch(keys, c)][counts[c]++] = index;
+		}
+	}
+
+	/**
+	 * Lists the cells holding a character. The returned array must not be modified.
+	 * @param c the character to look up
+	 * @return flat indices of the cells holding the character, in ascending order
+	 */
+	public int[] positions(char c){
+		final int key = Arrays.binarySearch(keys, c);
+		return key < 0 ? NO_POSITIONS : positions[key];
+	}
+
+	/**
+	 * @return how many cells hold the character
+	 */
+	public int count(char c){
+		return positions(c).length;
+	}
+}
@@ -0,0 +1,534 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A grid for a puzzle editor, which changes a cell at a time and needs to know after each change which words
+ * are still in the puzzle.
+ * Every place each tracked word occurs is kept as a key (start cell * 26 + direction), in order, so the first is
+ * the hit {@link WordSearch3D#search(Grid3D, String)} would return. A change to a cell only re-checks the
+ * placements that pass through that cell, for each length of tracked word; a placement is matched by looking
+ * up the letters along it, so the cost doesn't grow with the number of words. The occurrences are first found
+ * in one pass over the grid through a trie of the words.
+ * The cells holding each character are kept as a bit set, updated with every change, so searches for words
+ * that aren't tracked only visit the cells holding their first letter.
+ * As in search, a blank ('\u0000') cell matches any letter but the first.
+ */
+public class EditableGrid {
+
+	private static final int[] NO_WORDS = new int[0];
+
+	private final Grid3D grid;
+	private final int[] deltas;
+
+	// The tracked words as given, and the unique word each one maps to
+	private final String[] words;
+	private final int[] uniqueIds;
+	private final Map<String, Integer> ids = new HashMap<>();
+	private final List<String> uniqueWords = new ArrayList<>();
+
+	// Where each unique word occurs, as start * 26 + direction keys
+	private final List<TreeSet<Long>> occurrences = new ArrayList<>();
+
+	// The lengths of the tracked words, and the unique words of each length and first letter
+	private final int[] lengths;
+	private final Map<Long, List<Integer>> byLengthAndFirst = new HashMap<>();
+
+	// The cells holding each character
+	private final Map<Character, BitSet> cells = new HashMap<>();
+
+	// Letters read along a placement, reused
+	private final char[] line;
+
+	/**
+	 * @param grid the grid to start from; it is copied, so later changes to it aren't seen
+	 * @param words the words whose occurrences are kept up to date
+	 */
+	public EditableGrid(Grid3D grid, String[] words){
+		this.grid = grid.copy();
+		this.words = words.clone();
+		deltas = new int[Grid3D.DIRECTIONS.length];
+		for(int d = 0; d < deltas.length; d++){
+			deltas[d] = this.grid.delta(d);
+		}
+
+		for(int index = 0; index < this.grid.size(); index++){
+			cellsOf(this.grid.get(index)).set(index);
+		}
+
+		uniqueIds = new int[words.length];
+		final TreeSet<Integer> distinctLengths = new TreeSet<>();
+		int longest = 0;
+		for(int i = 0; i < words.length; i++){
+			final String word = words[i];
+			Integer id = ids.get(word);
+			if(id == null){
+				id = uniqueWords.size();
+				ids.put(word, id);
+				uniqueWords.add(word);
+				occurrences.add(new TreeSet<Long>());
+				if(!word.isEmpty()){
+					distinctLengths.add(word.length());
+					longest = Math.max(longest, word.length());
+					final long bucket = bucket(word.length(), word.charAt(0));
+					if(!byLengthAndFirst.containsKey(bucket)){
+						byLengthAndFirst.put(bucket, new ArrayList<Integer>());
+					}
+					byLengthAndFirst.get(bucket).add(id);
+				}
+			}
+			uniqueIds[i] = id;
+		}
+		lengths = new int[distinctLengths.size()];
+		int n = 0;
+		for(int length : distinctLengths){
+			lengths[n++] = length;
+		}
+		line = new char[longest];
+
+		if(this.grid.hasBlanks()){
+			findEachWord();
+		}else {
+			findAlongLines(longest);
+		}
+	}
+
+	public int getSizeX(){
+		return grid.getSizeX();
+	}
+
+	public int getSizeY(){
+		return grid.getSizeY();
+	}
+
+	public int getSizeZ(){
+		return grid.getSizeZ();
+	}
+
+	/**
+	 * @return the character at a cell
+	 */
+	public char getCell(int x, int y, int z){
+		return grid.get(x, y, z);
+	}
+
+	/**
+	 * Changes a cell, and brings the occurrences of the tracked words through it up to date
+	 * @param x x coordinate of the cell
+	 * @param y y coordinate of the cell
+	 * @param z z coordinate of the cell
+	 * @param c the new character, or '\u0000' to blank the cell
+	 */
+	public void setCell(int x, int y, int z, char c){
+		if(!grid.isInBounds(x, y, z)){
+			throw new IndexOutOfBoundsException("(" + x + ", " + y + ", " + z + ") is outside the grid");
+		}
+		final int index = grid.index(x, y, z);
+		final char old = grid.get(index);
+		if(old == c){
+			return;
+		}
+
+		// Occurrences through the cell that the old character made are gone, and the new one may make others
+		updatePlacementsThrough(index, false);
+		grid.set(index, c);
+		cells.get(old).clear(index);
+		cellsOf(c).set(index);
+		updatePlacementsThrough(index, true);
+	}
+
+	/**
+	 * Writes a word into the grid along a line, overwriting the cells it crosses
+	 * @param word the word
+	 * @param x x coordinate of the first letter
+	 * @param y y coordinate of the first letter
+	 * @param z z coordinate of the first letter
+	 * @param direction the direction the word reads in, as an index into {@link Grid3D#DIRECTIONS}
+	 * @return the (3-d) locations of its letters
+	 * @throws IllegalArgumentException if the word doesn't fit in the grid there
+	 */
+	public int[][] placeWord(String word, int x, int y, int z, int direction){
+		final int[] dir = Grid3D.DIRECTIONS[direction];
+		final int last = word.length() - 1;
+		if(word.isEmpty() || !grid.isInBounds(x, y, z) || !grid.isInBounds(x + last * dir[0], y + last * dir[1], z + last * dir[2])){
+			throw new IllegalArgumentException("\"" + word + "\" doesn't fit from (" + x + ", " + y + ", " + z + ") in direction " + direction);
+		}
+		for(int i = 0; i <= last; i++){
+			setCell(x + i * dir[0], y + i * dir[1], z + i * dir[2], word.charAt(i));
+		}
+		return toLocations(key(grid.index(x, y, z), direction), word.length());
+	}
+
+	/**
+	 * Takes a word out of the grid, blanking the cells of each place it occurs except those also holding a letter
+	 * of the first occurrence of another tracked word, so crossing words stay in the puzzle.
+	 * A blank matches any letter but the first, so where the first letter has to stay, the first cell that
+	 * doesn't is given a filler letter that differs from the word's instead of being blanked.
+	 * @param word the word to take out
+	 * @return the (3-d) locations of the word's letters where it was first found, or null if it wasn't in the grid
+	 * @throws IllegalStateException if every letter of an occurrence belongs to other words, so it can't be
+	 * taken out without breaking them, or the word can't be got rid of; the occurrences already taken out stay out
+	 */
+	public int[][] clearWord(String word){
+		final int[][] location = search(word);
+		if(location == null){
+			return null;
+		}
+
+		// New blanks can make new occurrences, since they match any letter, so keep going until there are none,
+		// but not for more rounds than there are cells
+		int[][] occurrence = location;
+		for(int round = 0; occurrence != null && round < grid.size(); round++){
+			clearOccurrence(word, occurrence);
+			occurrence = search(word);
+		}
+		if(occurrence != null){
+			throw new IllegalStateException("\"" + word + "\" keeps occurring as cells are blanked");
+		}
+		return location;
+	}
+
+	/**
+	 * Breaks one occurrence of a word, as described in {@link #clearWord}
+	 * @param word the word
+	 * @param occurrence the (3-d) locations of its letters
+	 */
+	private void clearOccurrence(String word, int[][] occurrence){
+		final Set<Integer> kept = new HashSet<>();
+		for(int id = 0; id < uniqueWords.size(); id++){
+			final String other = uniqueWords.get(id);
+			if(occurrences.get(id).isEmpty() || other.equals(word)){
+				continue;
+			}
+			final long first = occurrences.get(id).first();
+			final int delta = deltas[(int) (first % deltas.length)];
+			for(int i = 0, index = (int) (first / deltas.length); i < other.length(); i++, index += delta){
+				kept.add(index);
+			}
+		}
+
+		int filler = -1;
+		for(int i = 0; i < occurrence.length; i++){
+			final int[] letter = occurrence[i];
+			if(kept.contains(grid.index(letter[0], letter[1], letter[2]))){
+				continue;
+			}
+
+			// Without its first letter the word can't be there; with it, blanks alone won't do
+			if(i > 0 && filler < 0 && kept.contains(grid.index(occurrence[0][0], occurrence[0][1], occurrence[0][2]))){
+				filler = i;
+				setCell(letter[0], letter[1], letter[2], word.charAt(i) == 'a' ? 'b' : 'a');
+			}else {
+				setCell(letter[0], letter[1], letter[2], '\u0000');
+			}
+		}
+		if(filler < 0 && kept.contains(grid.index(occurrence[0][0], occurrence[0][1], occurrence[0][2]))){
+			throw new IllegalStateException("Every letter of \"" + word + "\" at " + Arrays.toString(occurrence[0]) + " belongs to other words");
+		}
+	}
+
+	/**
+	 * Searches for the specified word. Tracked words are looked up; others are searched for from the cells
+	 * holding their first letter.
+	 * @param word the word to search for
+	 * @return If the grid contains the word, then the method returns a list of the (3-d) locations of its letters;
+	 * if not, null
+	 */
+	public int[][] search(String word){
+		final Integer id = ids.get(word);
+		if(id != null){
+			final TreeSet<Long> keys = occurrences.get(id);
+			return keys.isEmpty() ? null : toLocations(keys.first(), word.length());
+		}
+		if(word.isEmpty()){
+			return null;
+		}
+
+		final BitSet starts = cells.get(word.charAt(0));
+		if(starts == null){
+			return null;
+		}
+		for(int start = starts.nextSetBit(0); start >= 0; start = starts.nextSetBit(start + 1)){
+			for(int d = 0; d < deltas.length; d++){
+				if(fits(start, d, word.length()) && matches(word, start, d)){
+					return toLocations(key(start, d), word.length());
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return for each tracked word, the list of the (3-d) locations of its letters, or null if it is not in the
+	 * grid; the same as {@link WordSearch3D#searchForAll(Grid3D, String[])} on the grid as it is now
+	 */
+	public int[][][] searchForAll(){
+		final int[][][] locations = new int[words.length][][];
+		for(int i = 0; i < words.length; i++){
+			final TreeSet<Long> keys = occurrences.get(uniqueIds[i]);
+			if(!keys.isEmpty()){
+				locations[i] = toLocations(keys.first(), words[i].length());
+			}
+		}
+		return locations;
+	}
+
+	/**
+	 * @return the tracked words now in the grid, in the order given, each once
+	 */
+	public String[] getFoundWords(){
+		final List<String> found = new ArrayList<>();
+		for(int id = 0; id < uniqueWords.size(); id++){
+			if(!occurrences.get(id).isEmpty()){
+				found.add(uniqueWords.get(id));
+			}
+		}
+		return found.toArray(new String[0]);
+	}
+
+	/**
+	 * @param word a tracked word
+	 * @return the number of places the word occurs; a palindrome counts once for each way it reads
+	 * @throws IllegalArgumentException if the word isn't tracked
+	 */
+	public int countOccurrences(String word){
+		final Integer id = ids.get(word);
+		if(id == null){
+			throw new IllegalArgumentException("\"" + word + "\" isn't tracked");
+		}
+		return occurrences.get(id).size();
+	}
+
+	/**
+	 * @return how many cells hold the character
+	 */
+	public int count(char c){
+		final BitSet positions = cells.get(c);
+		return positions == null ? 0 : positions.cardinality();
+	}
+
+	/**
+	 * @return a copy of the grid as it is now
+	 */
+	public Grid3D toGrid(){
+		return grid.copy();
+	}
+
+	/**
+	 * @return the grid as it is now, as a 3-d char array
+	 */
+	public char[][][] toArray(){
+		return grid.toArray();
+	}
+
+	/**
+	 * Finds every occurrence of each unique word with a search of its own, which treats blanks as search does
+	 */
+	private void findEachWord(){
+		final SearchableGrid searchable = SearchableGrid.wrap(grid, new CharIndex(grid));
+		for(int id = 0; id < uniqueWords.size(); id++){
+			final TreeSet<Long> keys = occurrences.get(id);
+			if(uniqueWords.get(id).isEmpty()){
+				continue;
+			}
+			searchable.searchAllOccurrences(uniqueWords.get(id), new HitListener() {
+				@Override
+				public void hit(int x, int y, int z, int direction){
+					keys.add(key(grid.index(x, y, z), direction));
+				}
+			});
+		}
+	}
+
+	/**
+	 * Finds every occurrence of every word in one pass over a grid without blanks, reading from each cell in each
+	 * direction through a trie of the words, only as far as the letters read start some word
+	 * @param longest length of the longest word
+	 */
+	private void findAlongLines(int longest){
+		final Trie root = new Trie();
+		for(int id = 0; id < uniqueWords.size(); id++){
+			final String word = uniqueWords.get(id);
+			Trie node = root;
+			for(int i = 0; i < word.length(); i++){
+				Trie child = node.children.get(word.charAt(i));
+				if(child == null){
+					child = new Trie();
+					node.children.put(word.charAt(i), child);
+				}
+				node = child;
+			}
+			if(!word.isEmpty()){
+				node.id = id;
+			}
+		}
+
+		for(int start = 0; start < grid.size(); start++){
+			final int x = grid.x(start);
+			final int y = grid.y(start);
+			final int z = grid.z(start);
+			for(int d = 0; d < deltas.length; d++){
+				final int[] dir = Grid3D.DIRECTIONS[d];
+				Trie node = root;
+				for(int i = 0, index = start; i < longest && grid.isInBounds(x + i * dir[0], y + i * dir[1], z + i * dir[2]); i++, index += deltas[d]){
+					node = node.children.get(grid.get(index));
+					if(node == null){
+						break;
+					}
+
+					// A single letter is only found in the first direction
+					if(node.id >= 0 && (i > 0 || d == 0)){
+						occurrences.get(node.id).add(key(start, d));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes or adds the occurrences of tracked words along every placement through a cell
+	 * @param index flat index of the cell
+	 * @param add true to add the occurrences the grid now makes, false to remove them
+	 */
+	private void updatePlacementsThrough(int index, boolean add){
+		final int x = grid.x(index);
+		final int y = grid.y(index);
+		final int z = grid.z(index);
+		for(int length : lengths){
+
+			// A single letter is only found in the first direction
+			final int directions = length == 1 ? 1 : deltas.length;
+			for(int d = 0; d < directions; d++){
+				final int[] dir = Grid3D.DIRECTIONS[d];
+				for(int i = 0; i < length; i++){
+					final int sx = x - i * dir[0];
+					final int sy = y - i * dir[1];
+					final int sz = z - i * dir[2];
+					if(!grid.isInBounds(sx, sy, sz)){
+						break;
+					}
+					final int start = grid.index(sx, sy, sz);
+					if(!fits(start, d, length)){
+						continue;
+					}
+					final Long key = key(start, d);
+					for(int id : wordsAt(start, d, length)){
+						if(add){
+							occurrences.get(id).add(key);
+						}else {
+							occurrences.get(id).remove(key);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the tracked words of a length that read along an in-bounds placement
+	 * @param start flat index of the start cell
+	 * @param direction index into {@link Grid3D#DIRECTIONS}
+	 * @param length length of the placement
+	 * @return ids of the unique words there
+	 */
+	private int[] wordsAt(int start, int direction, int length){
+		final char first = grid.get(start);
+		final List<Integer> candidates = byLengthAndFirst.get(bucket(length, first));
+		if(first == '\u0000' || candidates == null){
+			return NO_WORDS;
+		}
+
+		// Without blanks, the letters along the line are the only word that can be there
+		boolean blanks = false;
+		for(int i = 0, index = start; i < length; i++, index += deltas[direction]){
+			line[i] = grid.get(index);
+			blanks |= line[i] == '\u0000';
+		}
+		if(!blanks){
+			final Integer id = ids.get(new String(line, 0, length));
+			return id == null ? NO_WORDS : new int[] { id };
+		}
+
+		// Blanks match anything, so try each word with this first letter
+		final List<Integer> matching = new ArrayList<>();
+		for(int id : candidates){
+			if(matches(uniqueWords.get(id), start, direction)){
+				matching.add(id);
+			}
+		}
+		final int[] result = new int[matching.size()];
+		for(int i = 0; i < result.length; i++){
+			result[i] = matching.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * @return if a placement of a length from a start cell in a direction stays in the grid
+	 */
+	private boolean fits(int start, int direction, int length){
+		final int[] dir = Grid3D.DIRECTIONS[direction];
+		final int last = length - 1;
+		return grid.isInBounds(grid.x(start) + last * dir[0], grid.y(start) + last * dir[1], grid.z(start) + last * dir[2]);
+	}
+
+	/**
+	 * Checks if a word reads along an in-bounds placement, with blanks matching any letter but the first
+	 */
+	private boolean matches(String word, int start, int direction){
+		if(grid.get(start) != word.charAt(0)){
+			return false;
+		}
+		for(int i = 1, index = start + deltas[direction]; i < word.length(); i++, index += deltas[direction]){
+			final char current = grid.get(index);
+			if(current != '\u0000' && current != word.charAt(i)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the (3-d) locations of the letters of a placement
+	 */
+	private int[][] toLocations(long key, int length){
+		final int start = (int) (key / deltas.length);
+		final int[] dir = Grid3D.DIRECTIONS[(int) (key % deltas.length)];
+		final int[][] locations = new int[length][];
+		for(int i = 0; i < length; i++){
+			locations[i] = new int[] { grid.x(start) + i * dir[0], grid.y(start) + i * dir[1], grid.z(start) + i * dir[2] };
+		}
+		return locations;
+	}
+
+	private BitSet cellsOf(char c){
+		BitSet positions = cells.get(c);
+		if(positions == null){
+			positions = new BitSet(grid.size());
+			cells.put(c, positions);
+		}
+		return positions;
+	}
+
+	private static long key(int start, int direction){
+		return (long) start * Grid3D.DIRECTIONS.length + direction;
+	}
+
+	private static long bucket(int length, char first){
+		return ((long) length << 16) | first;
+	}
+
+	/**
+	 * A node of the trie of words used to find them all at once
+	 */
+	private static final class Trie {
+		final Map<Character, Trie> children = new HashMap<>();
+		int id = -1;
+	}
+}
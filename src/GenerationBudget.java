@@ -0,0 +1,71 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the work {@link WordSearch3D#make(String[], int, int, int, GenerationBudget)} may do: a number of
+ * placement checks, a time limit and a token to cancel it with. Budgets can't be changed; each with method
+ * gives a new one.
+ */
+public final class GenerationBudget {
+
+	/** The budget plain make works within: a fixed number of placement checks, and no time limit */
+	public static final GenerationBudget DEFAULT = new GenerationBudget(WordSearch3D.MAX_PLACEMENT_CHECKS, -1, null);
+
+	private final long maxChecks;
+	private final long timeoutNanos;
+	private final CancelToken cancelToken;
+
+	private GenerationBudget(long maxChecks, long timeoutNanos, CancelToken cancelToken){
+		this.maxChecks = maxChecks;
+		this.timeoutNanos = timeoutNanos;
+		this.cancelToken = cancelToken;
+	}
+
+	/**
+	 * @param maxChecks most placements to check before giving up
+	 * @return this budget with a different number of checks
+	 */
+	public GenerationBudget withMaxChecks(long maxChecks){
+		if(maxChecks < 0){
+			throw new IllegalArgumentException("Negative number of checks: " + maxChecks);
+		}
+		return new GenerationBudget(maxChecks, timeoutNanos, cancelToken);
+	}
+
+	/**
+	 * @param timeout longest to spend placing words, counted from the start of make
+	 * @param unit unit of the timeout
+	 * @return this budget with a time limit
+	 */
+	public GenerationBudget withTimeout(long timeout, TimeUnit unit){
+		if(timeout < 0){
+			throw new IllegalArgumentException("Negative timeout: " + timeout);
+		}
+		return new GenerationBudget(maxChecks, unit.toNanos(timeout), cancelToken);
+	}
+
+	/**
+	 * @param cancelToken token that stops make once cancelled, or null for none
+	 * @return this budget with a cancel token
+	 */
+	public GenerationBudget withCancelToken(CancelToken cancelToken){
+		return new GenerationBudget(maxChecks, timeoutNanos, cancelToken);
+	}
+
+	public long getMaxChecks(){
+		return maxChecks;
+	}
+
+	/**
+	 * @return the time limit in nanoseconds, or -1 if there is none
+	 */
+	public long getTimeoutNanos(){
+		return timeoutNanos;
+	}
+
+	/**
+	 * @return the cancel token, or null if there is none
+	 */
+	public CancelToken getCancelToken(){
+		return cancelToken;
+	}
+}
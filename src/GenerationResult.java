@@ -0,0 +1,78 @@
+/**
+ * What came of making a puzzle within a {@link GenerationBudget}: the grid, which holds every word placed and
+ * random letters everywhere else, and which words, if any, couldn't be placed.
+ *
+ * Words are placed longest first, one after another, so a partial grid always holds the longest few words:
+ * the deepest the search got, not the largest set of words that would fit. If the longest word can't go in,
+ * nothing is placed, even though the rest might all have fitted without it.
+ */
+public final class GenerationResult {
+
+	/**
+	 * How generation ended
+	 */
+	public enum Outcome {
+		/** Every word was placed */
+		COMPLETE,
+		/** Every placement was tried, or a word is too long for the grid; the words can't all fit */
+		IMPOSSIBLE,
+		/** The budget of placement checks ran out */
+		OUT_OF_CHECKS,
+		/** The time limit passed */
+		TIMED_OUT,
+		/** The cancel token was cancelled, or the thread interrupted */
+		CANCELLED
+	}
+
+	private final Grid3D grid;
+	private final Outcome outcome;
+	private final String[] placed;
+	private final String[] unplaced;
+
+	GenerationResult(Grid3D grid, Outcome outcome, String[] placed, String[] unplaced){
+		this.grid = grid;
+		this.outcome = outcome;
+		this.placed = placed;
+		this.unplaced = unplaced;
+	}
+
+	/**
+	 * @return the grid, complete or not
+	 */
+	public Grid3D getGrid(){
+		return grid;
+	}
+
+	/**
+	 * @return the grid as a 3-d char array
+	 */
+	public char[][][] toArray(){
+		return grid.toArray();
+	}
+
+	public Outcome getOutcome(){
+		return outcome;
+	}
+
+	/**
+	 * @return if every word was placed
+	 */
+	public boolean isComplete(){
+		return outcome == Outcome.COMPLETE;
+	}
+
+	/**
+	 * @return the words in the grid, longest first; on failure, the first words in that order, never a pick
+	 * from further along it
+	 */
+	public String[] getPlacedWords(){
+		return placed.clone();
+	}
+
+	/**
+	 * @return the words that couldn't be placed; empty if the grid is complete
+	 */
+	public String[] getUnplacedWords(){
+		return unplaced.clone();
+	}
+}
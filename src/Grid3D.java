@@ -0,0 +1,232 @@
+/**
+ * A dense 3-d grid of characters stored in a single flat array.
+ * Cell (x, y, z) lives at index x * sizeY * sizeZ + y * sizeZ + z, so stepping
+ * through the grid in any of the 26 directions is a constant index delta.
+ * Subclasses may keep the cells somewhere other than a char[], such as {@link BufferGrid}.
+ */
+public class Grid3D {
+
+	/**
+	 * The 26 directions in the order they are tried by search: x, then y, then z from -1 to 1,
+	 * skipping (0, 0, 0).
+	 */
+	public static final int[][] DIRECTIONS = buildDirections();
+
+	private final int sizeX;
+	private final int sizeY;
+	private final int sizeZ;
+
+	// Distance in the flat array between neighbouring x and y planes
+	private final int strideX;
+	private final int strideY;
+
+	private final int size;
+
+	// The cells, or null if a subclass stores them
+	private final char[] cells;
+
+	/**
+	 * Creates an empty (all '\u0000') grid of the given size
+	 * @param sizeX size of the grid along first dimension
+	 * @param sizeY size of the grid along second dimension
+	 * @param sizeZ size of the grid along third dimension
+	 */
+	public Grid3D(int sizeX, int sizeY, int sizeZ){
+		this(sizeX, sizeY, sizeZ, true);
+	}
+
+	/**
+	 * Creates a grid of the given size
+	 * @param sizeX size of the grid along first dimension
+	 * @param sizeY size of the grid along second dimension
+	 * @param sizeZ size of the grid along third dimension
+	 * @param allocate whether to store the cells in a char[]; false for subclasses that store them elsewhere
+	 */
+	Grid3D(int sizeX, int sizeY, int sizeZ, boolean allocate){
+		if(sizeX < 0 || sizeY < 0 || sizeZ < 0){
+			throw new IllegalArgumentException("Grid sizes must not be negative");
+		}
+		if((long) sizeX * sizeY * sizeZ > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("Grid is too large: " + sizeX + "x" + sizeY + "x" + sizeZ);
+		}
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.sizeZ = sizeZ;
+		this.strideY = sizeZ;
+		this.strideX = sizeY * sizeZ;
+		this.size = sizeX * sizeY * sizeZ;
+		this.cells = allocate ? new char[size] : null;
+	}
+
+	/**
+	 * Copies a jagged char[][][] grid into a flat grid
+	 * @param grid the grid to copy, assumed to be rectangular
+	 * @return a flat copy of the grid
+	 */
+	public static Grid3D fromArray(char[][][] grid){
+		final int sizeX = grid.length;
+		final int sizeY = sizeX == 0 ? 0 : grid[0].length;
+		final int sizeZ = sizeY == 0 ? 0 : grid[0][0].length;
+
+		final Grid3D result = new Grid3D(sizeX, sizeY, sizeZ);
+		int index = 0;
+		for(int x = 0; x < sizeX; x++){
+			for(int y = 0; y < sizeY; y++){
+				System.arraycopy(grid[x][y], 0, result.cells, index, sizeZ);
+				index += sizeZ;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Copies the grid into a new jagged char[][][]
+	 * @return the grid as a char[][][]
+	 */
+	public char[][][] toArray(){
+		final char[][][] result = new char[sizeX][sizeY][sizeZ];
+		int index = 0;
+		for(int x = 0; x < sizeX; x++){
+			for(int y = 0; y < sizeY; y++){
+				System.arraycopy(cells, index, result[x][y], 0, sizeZ);
+				index += sizeZ;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return a copy of the grid
+	 */
+	public Grid3D copy(){
+		final Grid3D result = new Grid3D(sizeX, sizeY, sizeZ);
+		System.arraycopy(cells, 0, result.cells, 0, cells.length);
+		return result;
+	}
+
+	public int getSizeX(){
+		return sizeX;
+	}
+
+	public int getSizeY(){
+		return sizeY;
+	}
+
+	public int getSizeZ(){
+		return sizeZ;
+	}
+
+	/**
+	 * @return the total number of cells in the grid
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * @return the flat index of the cell at (x, y, z)
+	 */
+	public int index(int x, int y, int z){
+		return x * strideX + y * strideY + z;
+	}
+
+	/**
+	 * @return the x coordinate of the cell at the flat index
+	 */
+	public int x(int index){
+		return index / strideX;
+	}
+
+	/**
+	 * @return the y coordinate of the cell at the flat index
+	 */
+	public int y(int index){
+		return (index % strideX) / strideY;
+	}
+
+	/**
+	 * @return the z coordinate of the cell at the flat index
+	 */
+	public int z(int index){
+		return index % strideY;
+	}
+
+	public char get(int index){
+		return cells[index];
+	}
+
+	public char get(int x, int y, int z){
+		return cells[index(x, y, z)];
+	}
+
+	public void set(int index, char c){
+		cells[index] = c;
+	}
+
+	public void set(int x, int y, int z, char c){
+		cells[index(x, y, z)] = c;
+	}
+
+	/**
+	 * @return if any cell of the grid is blank ('\u0000')
+	 */
+	public boolean hasBlanks(){
+		for(int index = 0; index < cells.length; index++){
+			if(cells[index] == '\u0000'){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Resets every cell to '\u0000'
+	 */
+	public void clear(){
+		java.util.Arrays.fill(cells, '\u0000');
+	}
+
+	/**
+	 * Checks if the position is in bounds of the grid
+	 * @return if the x,y,z coordinate is in bounds of the grid
+	 */
+	public boolean isInBounds(int x, int y, int z){
+		return x >= 0 && x < sizeX && y >= 0 && y < sizeY && z >= 0 && z < sizeZ;
+	}
+
+	/**
+	 * @return the change in flat index when taking one step in the given direction
+	 */
+	public int delta(int xDir, int yDir, int zDir){
+		return xDir * strideX + yDir * strideY + zDir;
+	}
+
+	/**
+	 * @param direction index into {@link #DIRECTIONS}
+	 * @return the change in flat index when taking one step in the given direction
+	 */
+	public int delta(int direction){
+		final int[] dir = DIRECTIONS[direction];
+		return delta(dir[0], dir[1], dir[2]);
+	}
+
+	/**
+	 * Builds the list of all 26 directions
+	 * @return the list of directions
+	 */
+	private static int[][] buildDirections(){
+		final int[][] result = new int[26][];
+		int n = 0;
+		for(int xDir = -1; xDir < 2; xDir++){
+			for(int yDir = -1; yDir < 2; yDir++){
+				for(int zDir = -1; zDir < 2; zDir++){
+					if(xDir == 0 && yDir == 0 && zDir == 0){
+						continue;
+					}
+					result[n++] = new int[] { xDir, yDir, zDir };
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,207 @@
+/**
+ * Every line of a grid running in one direction, copied end to end into a single char array.
+ * Searching a line for a word and for the word reversed covers both the direction and its opposite,
+ * so 13 of these cover all 26 directions.
+ */
+public final class GridLines {
+
+	private final int direction;
+
+	// Flat grid index delta between neighbouring cells of a line
+	private final int delta;
+
+	// All lines laid end to end; line n is chars[offsets[n]] up to chars[offsets[n + 1]]
+	private final char[] chars;
+	private final int[] offsets;
+
+	// Flat grid index of the first cell of each line
+	private final int[] starts;
+
+	/**
+	 * Copies out the lines of a grid
+	 * @param grid the grid
+	 * @param direction index into {@link Grid3D#DIRECTIONS}
+	 */
+	public GridLines(Grid3D grid, int direction){
+		this.direction = direction;
+		this.delta = grid.delta(direction);
+		final int[] dir = Grid3D.DIRECTIONS[direction];
+
+		// Every cell is on exactly one line, so the lines add up to the size of the grid
+		chars = new char[grid.size()];
+
+		// Lines start at the cells whose predecessor in this direction is off the grid
+		int lines = 0;
+		for(int x = 0; x < grid.getSizeX(); x++){
+			for(int y = 0; y < grid.getSizeY(); y++){
+				for(int z = 0; z < grid.getSizeZ(); z++){
+					if(!grid.isInBounds(x - dir[0], y - dir[1], z - dir[2])){
+						lines++;
+					}
+				}
+			}
+		}
+		offsets = new int[lines + 1];
+		starts = new int[lines];
+
+		int line = 0;
+		int length = 0;
+		for(int x = 0; x < grid.getSizeX(); x++){
+			for(int y = 0; y < grid.getSizeY(); y++){
+				for(int z = 0; z < grid.getSizeZ(); z++){
+					if(grid.isInBounds(x - dir[0], y - dir[1], z - dir[2])){
+						continue;
+					}
+					starts[line] = grid.index(x, y, z);
+					offsets[line] = length;
+					line++;
+
+					int index = starts[line - 1];
+					for(int cx = x, cy = y, cz = z; grid.isInBounds(cx, cy, cz); cx += dir[0], cy += dir[1], cz += dir[2]){
+						chars[length++] = grid.get(index);
+						index += delta;
+					}
+				}
+			}
+		}
+		offsets[lines] = length;
+	}
+
+	/**
+	 * @return the direction the lines run in, as an index into {@link Grid3D#DIRECTIONS}
+	 */
+	public int getDirection(){
+		return direction;
+	}
+
+	/**
+	 * @return the number of lines
+	 */
+	public int lineCount(){
+		return starts.length;
+	}
+
+	/**
+	 * Checks if any line holds the word, read either forwards or backwards.
+	 * As in search, the first letter must match exactly and any other letter may sit on a blank cell.
+	 * @param word the word to look for
+	 * @return if the word is on one of the lines
+	 */
+	public boolean contains(String word){
+		return scan(word, true) >= 0;
+	}
+
+	/**
+	 * Finds the hit of a word on these lines, reading either forwards or backwards, that search would
+	 * report first: the one with the lowest start cell, then the lowest direction.
+	 * @param word the word to look for
+	 * @return the hit as (flat start index * 26 + direction), or -1 if the word is not on any line
+	 */
+	public long firstHit(String word){
+		return scan(word, false);
+	}
+
+	/**
+	 * Matches a word against every line in one sequential pass, reading both forwards and backwards.
+	 * Each start offset is filtered on the word's first and last letters, which is enough to reject almost all
+	 * of them, and only the survivors are checked in full. The lines are treated as one long run of characters
+	 * while filtering; candidates that would cross from one line into the next are dropped when checked.
+	 * @param word the word to look for
+	 * @param any whether to stop at the first hit found rather than the one search would report first
+	 * @return the hit as (flat start index * 26 + direction), or -1 if the word is not on any line
+	 */
+	private long scan(String word, boolean any){
+		final int length = word.length();
+		final int last = length - 1;
+		final int lastPos = chars.length - length;
+		final int backwards = Grid3D.DIRECTIONS.length - 1 - direction;
+
+		// The word's first letter must match exactly; its last letter may also sit on a blank
+		final char head = word.charAt(0);
+		final char tail = word.charAt(last);
+
+		// Flat indices rise along a line, so only the first hit each way on a line can be the lowest
+		int line = 0;
+		int forwardLine = -1;
+		int backwardLine = -1;
+		long best = -1;
+
+		for(int pos = 0; pos <= lastPos; pos++){
+			final char first = chars[pos];
+			final boolean forward = first == head;
+			final boolean backward = first == tail || first == '\u0000';
+			if(!forward && !backward){
+				continue;
+			}
+			final char end = chars[pos + last];
+			if(!(forward && (end == tail || end == '\u0000')) && !(backward && end == head)){
+				continue;
+			}
+
+			// Find the line the candidate starts on, and drop it if it runs off the end
+			while(offsets[line + 1] <= pos){
+				line++;
+			}
+			if(pos + length > offsets[line + 1]){
+				continue;
+			}
+
+			if(forward && line != forwardLine && (end == tail || end == '\u0000') && matchesForwards(word, pos)){
+				forwardLine = line;
+				best = lower(best, key(starts[line] + (pos - offsets[line]) * delta, direction));
+				if(any){
+					return best;
+				}
+			}
+			if(backward && line != backwardLine && end == head && matchesBackwards(word, pos)){
+				backwardLine = line;
+				best = lower(best, key(starts[line] + (pos + last - offsets[line]) * delta, backwards));
+				if(any){
+					return best;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return if the word's middle letters read from chars[pos] along the line
+	 */
+	private boolean matchesForwards(String word, int pos){
+		for(int i = 1; i < word.length() - 1; i++){
+			final char c = chars[pos + i];
+			if(c != '\u0000' && c != word.charAt(i)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return if the word's middle letters read against the line, ending at chars[pos]
+	 */
+	private boolean matchesBackwards(String word, int pos){
+		final int last = word.length() - 1;
+		for(int i = 1; i < last; i++){
+			final char c = chars[pos + last - i];
+			if(c != '\u0000' && c != word.charAt(i)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the hit key of a start cell and direction
+	 */
+	private static long key(int start, int direction){
+		return (long) start * Grid3D.DIRECTIONS.length + direction;
+	}
+
+	/**
+	 * @return the lower of two hit keys, where -1 means no hit
+	 */
+	private static long lower(long a, long b){
+		return a < 0 || b < a ? b : a;
+	}
+}
@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+/**
+ * The places a word was found, stored compactly as {@link SearchableGrid#HIT_SIZE} ints per hit:
+ * start x, start y, start z and direction.
+ */
+public final class HitList implements HitListener {
+
+	private final int wordLength;
+	private int[] hits = new int[8 * SearchableGrid.HIT_SIZE];
+	private int size;
+
+	/**
+	 * @param wordLength length of the word the hits are for
+	 */
+	public HitList(int wordLength){
+		this.wordLength = wordLength;
+	}
+
+	@Override
+	public void hit(int x, int y, int z, int direction){
+		if((size + 1) * SearchableGrid.HIT_SIZE > hits.length){
+			hits = Arrays.copyOf(hits, hits.length * 2);
+		}
+		final int offset = size * SearchableGrid.HIT_SIZE;
+		hits[offset] = x;
+		hits[offset + 1] = y;
+		hits[offset + 2] = z;
+		hits[offset + 3] = direction;
+		size++;
+	}
+
+	/**
+	 * @return the number of hits
+	 */
+	public int size(){
+		return size;
+	}
+
+	public int getX(int hit){
+		return hits[checkHit(hit)];
+	}
+
+	public int getY(int hit){
+		return hits[checkHit(hit) + 1];
+	}
+
+	public int getZ(int hit){
+		return hits[checkHit(hit) + 2];
+	}
+
+	/**
+	 * @return the direction of a hit, as an index into {@link Grid3D#DIRECTIONS}
+	 */
+	public int getDirection(int hit){
+		return hits[checkHit(hit) + 3];
+	}
+
+	/**
+	 * Lists the (3-d) locations of the letters of the word for one hit
+	 * @param hit which hit
+	 * @return the locations of each letter
+	 */
+	public int[][] toLocations(int hit){
+		return SearchableGrid.toLocations(hits, checkHit(hit), wordLength);
+	}
+
+	/**
+	 * @return the offset of a hit in the buffer
+	 */
+	private int checkHit(int hit){
+		if(hit < 0 || hit >= size){
+			throw new IndexOutOfBoundsException("Hit " + hit + " of " + size);
+		}
+		return hit * SearchableGrid.HIT_SIZE;
+	}
+}
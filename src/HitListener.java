@@ -0,0 +1,14 @@
+/**
+ * Receives the hits of a word as a search finds them, so they don't have to be held in memory.
+ */
+public interface HitListener {
+
+	/**
+	 * Called for each place a word is found
+	 * @param x x coordinate of the word's first letter
+	 * @param y y coordinate of the word's first letter
+	 * @param z z coordinate of the word's first letter
+	 * @param direction the direction the word reads in, as an index into {@link Grid3D#DIRECTIONS}
+	 */
+	void hit(int x, int y, int z, int direction);
+}
@@ -0,0 +1,212 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Adds up the work reported to it as a {@link MetricsListener}, and can publish the totals over JMX.
+ * Counters are striped, so threads making or searching puzzles at once don't contend for them; only a new
+ * slowest word or attempt takes a lock.
+ */
+public class Metrics implements MetricsListener, MetricsMBean {
+
+	/** Name {@link #register()} publishes under */
+	public static final String OBJECT_NAME = "WordSearch3D:type=Metrics";
+
+	private final LongAdder generations = new LongAdder();
+	private final LongAdder failedGenerations = new LongAdder();
+	private final LongAdder generationNanos = new LongAdder();
+	private final LongAdder placementChecks = new LongAdder();
+	private final LongAdder wordsPlaced = new LongAdder();
+	private final LongAdder wordPlacementNanos = new LongAdder();
+	private final LongAdder backtracks = new LongAdder();
+	private final LongAdder restarts = new LongAdder();
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder cellsScanned = new LongAdder();
+	private final LongAdder directionsProbed = new LongAdder();
+	private final LongAdder searchNanos = new LongAdder();
+
+	// The slowest word and attempt so far; the times are read without the lock to skip it for most events
+	private volatile long maxWordPlacementNanos;
+	private String slowestWord;
+	private volatile long maxGenerationNanos;
+	private String[] slowestGenerationWords;
+
+	@Override
+	public void wordPlaced(String word, long checks, long nanos){
+		wordsPlaced.increment();
+		wordPlacementNanos.add(nanos);
+		if(nanos > maxWordPlacementNanos){
+			synchronized(this){
+				if(nanos > maxWordPlacementNanos){
+					maxWordPlacementNanos = nanos;
+					slowestWord = word;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void backtracked(String word){
+		backtracks.increment();
+	}
+
+	@Override
+	public void restarted(long checks){
+		restarts.increment();
+	}
+
+	@Override
+	public void generated(String[] words, boolean success, long checks, long nanos){
+		generations.increment();
+		if(!success){
+			failedGenerations.increment();
+		}
+		placementChecks.add(checks);
+		generationNanos.add(nanos);
+		if(nanos > maxGenerationNanos){
+			synchronized(this){
+				if(nanos > maxGenerationNanos){
+					maxGenerationNanos = nanos;
+					slowestGenerationWords = words;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void searched(String word, long cellsScanned, long directionsProbed, boolean found, long nanos){
+		searches.increment();
+		if(found){
+			hits.increment();
+		}
+		this.cellsScanned.add(cellsScanned);
+		this.directionsProbed.add(directionsProbed);
+		searchNanos.add(nanos);
+	}
+
+	@Override
+	public void searchedAll(int words, int found, long cellsScanned, long directionsProbed, long nanos){
+		searches.add(words);
+		hits.add(found);
+		this.cellsScanned.add(cellsScanned);
+		this.directionsProbed.add(directionsProbed);
+		searchNanos.add(nanos);
+	}
+
+	@Override
+	public long getGenerations(){
+		return generations.sum();
+	}
+
+	@Override
+	public long getFailedGenerations(){
+		return failedGenerations.sum();
+	}
+
+	@Override
+	public long getGenerationNanos(){
+		return generationNanos.sum();
+	}
+
+	@Override
+	public long getMaxGenerationNanos(){
+		return maxGenerationNanos;
+	}
+
+	@Override
+	public synchronized String getSlowestGenerationWords(){
+		return slowestGenerationWords == null ? null : Arrays.toString(slowestGenerationWords);
+	}
+
+	@Override
+	public long getPlacementChecks(){
+		return placementChecks.sum();
+	}
+
+	@Override
+	public long getWordsPlaced(){
+		return wordsPlaced.sum();
+	}
+
+	@Override
+	public long getBacktracks(){
+		return backtracks.sum();
+	}
+
+	@Override
+	public long getRestarts(){
+		return restarts.sum();
+	}
+
+	@Override
+	public long getMeanWordPlacementNanos(){
+		final long placed = wordsPlaced.sum();
+		return placed == 0 ? 0 : wordPlacementNanos.sum() / placed;
+	}
+
+	@Override
+	public long getMaxWordPlacementNanos(){
+		return maxWordPlacementNanos;
+	}
+
+	@Override
+	public synchronized String getSlowestWord(){
+		return slowestWord;
+	}
+
+	@Override
+	public long getSearches(){
+		return searches.sum();
+	}
+
+	@Override
+	public long getHits(){
+		return hits.sum();
+	}
+
+	@Override
+	public long getCellsScanned(){
+		return cellsScanned.sum();
+	}
+
+	@Override
+	public long getDirectionsProbed(){
+		return directionsProbed.sum();
+	}
+
+	@Override
+	public long getSearchNanos(){
+		return searchNanos.sum();
+	}
+
+	@Override
+	public void reset(){
+		for(LongAdder counter : new LongAdder[] { generations, failedGenerations, generationNanos, placementChecks,
+				wordsPlaced, wordPlacementNanos, backtracks, restarts, searches, hits, cellsScanned, directionsProbed, searchNanos }){
+			counter.reset();
+		}
+		synchronized(this){
+			maxWordPlacementNanos = 0;
+			slowestWord = null;
+			maxGenerationNanos = 0;
+			slowestGenerationWords = null;
+		}
+	}
+
+	/**
+	 * Publishes these metrics on the platform MBean server as {@link #OBJECT_NAME}, replacing any already there
+	 * @throws JMException if they can't be published
+	 */
+	public void register() throws JMException {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName name = new ObjectName(OBJECT_NAME);
+		if(server.isRegistered(name)){
+			server.unregisterMBean(name);
+		}
+		server.registerMBean(this, name);
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ * Receives counts and timings of the work done making and searching puzzles, for monitoring.
+ * Set one with {@link WordSearch3D#setMetricsListener}; with none set, nothing is counted or timed.
+ * Every method does nothing by default, so a listener only overrides what it cares about.
+ * Calls may come from several threads at once.
+ */
+public interface MetricsListener {
+
+	/**
+	 * Called when a word is placed while making a puzzle
+	 * @param word the word
+	 * @param checks placements checked since the word started looking, or last had to move
+	 * @param nanos time taken over those checks
+	 */
+	default void wordPlaced(String word, long checks, long nanos){
+	}
+
+	/**
+	 * Called when a placed word is taken back out because a later word had nowhere to go
+	 * @param word the word taken out
+	 */
+	default void backtracked(String word){
+	}
+
+	/**
+	 * Called when placing a list of words gives up on the words placed so far and starts again from an empty grid
+	 * with a fresh random walk, because the run used up its share of checks
+	 * @param checks placements checked so far in the attempt
+	 */
+	default void restarted(long checks){
+	}
+
+	/**
+	 * Called when an attempt to place a list of words ends
+	 * @param words the words, longest first
+	 * @param success if every word was placed
+	 * @param checks placements checked
+	 * @param nanos time taken
+	 */
+	default void generated(String[] words, boolean success, long checks, long nanos){
+	}
+
+	/**
+	 * Called when a search for one word ends
+	 * @param word the word
+	 * @param cellsScanned cells looked at for the first letter
+	 * @param directionsProbed directions tried from cells holding the first letter
+	 * @param found if the word was found
+	 * @param nanos time taken
+	 */
+	default void searched(String word, long cellsScanned, long directionsProbed, boolean found, long nanos){
+	}
+
+	/**
+	 * Called when a search for a list of words ends
+	 * @param words number of words searched for
+	 * @param found number of them found
+	 * @param cellsScanned cells looked at, counting a cell once for each direction it was read in
+	 * @param directionsProbed directions tried from cells holding a first letter, when the words were looked
+	 * for one at a time, as they are in grids with blanks; 0 when they were all read in one pass
+	 * @param nanos time taken
+	 */
+	default void searchedAll(int words, int found, long cellsScanned, long directionsProbed, long nanos){
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * The counters of {@link Metrics}, as seen over JMX. Times are in nanoseconds.
+ */
+public interface MetricsMBean {
+
+	/** @return attempts to place a list of words */
+	long getGenerations();
+
+	/** @return attempts that couldn't place every word */
+	long getFailedGenerations();
+
+	/** @return time spent placing words */
+	long getGenerationNanos();
+
+	/** @return time taken by the slowest attempt */
+	long getMaxGenerationNanos();
+
+	/** @return the words of the slowest attempt, longest first */
+	String getSlowestGenerationWords();
+
+	/** @return placements checked */
+	long getPlacementChecks();
+
+	/** @return words placed, counting a word again each time it moves */
+	long getWordsPlaced();
+
+	/** @return words taken back out so an earlier word could move */
+	long getBacktracks();
+
+	/** @return times placing a list of words started again from an empty grid */
+	long getRestarts();
+
+	/** @return mean time from a word beginning to look for a place to finding one */
+	long getMeanWordPlacementNanos();
+
+	/** @return the longest time a word took to find a place */
+	long getMaxWordPlacementNanos();
+
+	/** @return the word that took longest to find a place */
+	String getSlowestWord();
+
+	/** @return words searched for, alone or in lists */
+	long getSearches();
+
+	/** @return words found */
+	long getHits();
+
+	/** @return cells looked at while searching */
+	long getCellsScanned();
+
+	/** @return directions tried from cells holding a word's first letter, by single-word searches */
+	long getDirectionsProbed();
+
+	/** @return time spent searching */
+	long getSearchNanos();
+
+	/**
+	 * Sets every counter back to zero
+	 */
+	void reset();
+}
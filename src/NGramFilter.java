@@ -0,0 +1,277 @@
+/**
+ * Records which runs of characters appear in a straight line anywhere in a grid, in any direction.
+ * A word can only be in the grid if every run of consecutive letters in it is, so most absent words are
+ * rejected after a few bit lookups instead of a search.
+ *
+ * Pairs of neighbouring ASCII characters are recorded exactly. Pairs alone say little about a big grid,
+ * where nearly every pair of letters turns up somewhere, so runs of a longer length n are also kept in a
+ * Bloom filter. n is picked per grid so that only a small fraction of all possible runs can occur in it.
+ * The Bloom filter is sized for the runs the grid actually holds. A grid with so many runs that the filter
+ * would pass the cap (about 145^3 cells of random letters) gets none, since a full filter would let nearly
+ * every run through; only pairs are checked then.
+ * Both parts can only err by letting through a word that is then searched for as normal.
+ *
+ * Blank cells match any letter, so a grid with blanks gets a filter that lets every word through.
+ */
+public final class NGramFilter {
+
+	// One bit per pair of ASCII characters
+	private static final int ASCII = 128;
+	private final long[] asciiPairs = new long[ASCII * ASCII / 64];
+
+	// Bloom filter bits per recorded run, at least; with two bits set per run, at most 1 in 6 absent runs get
+	// through. And the most bits it may use, 32 MB
+	private static final int BITS_PER_RUN = 4;
+	private static final long MAX_BITS = 1L << 28;
+
+	// Multiplier of the polynomial hash of a run
+	private static final long PRIME = 0x100000001B3L;
+
+	private final boolean acceptAll;
+
+	// Length of the runs in the Bloom filter, or 0 if there is none
+	private final int runLength;
+	private final long[] runs;
+	private final long runMask;
+
+	/**
+	 * Records the runs of characters of a grid
+	 * @param grid the grid
+	 */
+	public NGramFilter(Grid3D grid){
+		acceptAll = grid.hasBlanks();
+		if(acceptAll){
+			runLength = 0;
+			runs = null;
+			runMask = 0;
+			return;
+		}
+
+		// Every cell starts a run in up to 26 directions
+		final long runCount = (long) grid.size() * Grid3D.DIRECTIONS.length;
+		int length = pickRunLength(countDistinct(grid), runCount, longestLine(grid));
+		long bits = 0;
+		if(length > 0){
+			bits = Long.highestOneBit(Math.max(64, countRuns(grid, length) * BITS_PER_RUN - 1)) << 1;
+			if(bits > MAX_BITS){
+				length = 0;
+			}
+		}
+		runLength = length;
+		if(runLength > 0){
+			runs = new long[(int) (bits / 64)];
+			runMask = bits - 1;
+		} else {
+			runs = null;
+			runMask = 0;
+		}
+
+		// Directions 13 to 25 are the opposites of 12 to 0, so reading their lines both ways covers every direction
+		for(int d = Grid3D.DIRECTIONS.length / 2; d < Grid3D.DIRECTIONS.length; d++){
+			recordLines(grid, d);
+		}
+	}
+
+	/**
+	 * Checks if the word could be in the grid. A single letter always passes; check those against a
+	 * {@link CharIndex} instead.
+	 * @param word the word to check
+	 * @return false if the word is certainly not in the grid, true if it might be
+	 */
+	public boolean mightContain(String word){
+		if(acceptAll){
+			return true;
+		}
+		for(int i = 1; i < word.length(); i++){
+			final char a = word.charAt(i - 1);
+			final char b = word.charAt(i);
+			if(a < ASCII && b < ASCII && !hasPair(a, b)){
+				return false;
+			}
+		}
+		if(runLength > 0){
+			for(int start = 0; start + runLength <= word.length(); start++){
+				long hash = 0;
+				for(int i = start; i < start + runLength; i++){
+					hash = hash * PRIME + word.charAt(i);
+				}
+				if(!hasRun(hash)){
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Records the pairs and runs on every line of the grid in one direction, read both forwards and backwards
+	 * @param grid the grid
+	 * @param direction index into {@link Grid3D#DIRECTIONS}
+	 */
+	private void recordLines(Grid3D grid, int direction){
+		final int[] dir = Grid3D.DIRECTIONS[direction];
+		final int delta = grid.delta(direction);
+		final char[] line = new char[longestLine(grid)];
+
+		for(int x = 0; x < grid.getSizeX(); x++){
+			for(int y = 0; y < grid.getSizeY(); y++){
+				for(int z = 0; z < grid.getSizeZ(); z++){
+
+					// Lines start at the cells whose predecessor in this direction is off the grid
+					if(grid.isInBounds(x - dir[0], y - dir[1], z - dir[2])){
+						continue;
+					}
+
+					int length = 0;
+					int index = grid.index(x, y, z);
+					for(int cx = x, cy = y, cz = z; grid.isInBounds(cx, cy, cz); cx += dir[0], cy += dir[1], cz += dir[2]){
+						line[length++] = grid.get(index);
+						index += delta;
+					}
+					recordLine(line, length);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records the pairs and runs of one line, read both forwards and backwards
+	 * @param line the characters of the line
+	 * @param length the length of the line
+	 */
+	private void recordLine(char[] line, int length){
+		for(int i = 1; i < length; i++){
+			addPair(line[i - 1], line[i]);
+			addPair(line[i], line[i - 1]);
+		}
+		if(runLength == 0){
+			return;
+		}
+		for(int start = 0; start + runLength <= length; start++){
+			long forwards = 0;
+			long backwards = 0;
+			for(int i = 0; i < runLength; i++){
+				forwards = forwards * PRIME + line[start + i];
+				backwards = backwards * PRIME + line[start + runLength - 1 - i];
+			}
+			addRun(forwards);
+			addRun(backwards);
+		}
+	}
+
+	/**
+	 * Picks the shortest run length for which the runs in the grid fill only a small part of all possible runs
+	 * @param alphabet number of distinct characters in the grid
+	 * @param runCount upper bound on the number of runs in the grid
+	 * @param longestLine the length of the longest line in the grid
+	 * @return the run length, or 0 if runs wouldn't rule anything out that pairs don't
+	 */
+	private static int pickRunLength(int alphabet, long runCount, int longestLine){
+		if(alphabet < 2){
+			return 0;
+		}
+		double possible = (double) alphabet * alphabet * alphabet;
+		for(int length = 3; length <= longestLine; length++, possible *= alphabet){
+			if(possible >= 8.0 * runCount){
+				return length;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Counts the runs of a length that fit in the grid, read both ways along the lines in each direction
+	 * @param grid the grid
+	 * @param length the run length
+	 * @return the number of runs recorded, counting repeats
+	 */
+	private static long countRuns(Grid3D grid, int length){
+		final int[] sizes = { grid.getSizeX(), grid.getSizeY(), grid.getSizeZ() };
+		long count = 0;
+		for(int d = Grid3D.DIRECTIONS.length / 2; d < Grid3D.DIRECTIONS.length; d++){
+			long starts = 2;
+			for(int k = 0; k < 3; k++){
+				starts *= Math.max(0, sizes[k] - (length - 1) * Math.abs(Grid3D.DIRECTIONS[d][k]));
+			}
+			count += starts;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of distinct characters in the grid
+	 */
+	private static int countDistinct(Grid3D grid){
+		final boolean[] seen = new boolean[Character.MAX_VALUE + 1];
+		int distinct = 0;
+		for(int index = 0; index < grid.size(); index++){
+			final char c = grid.get(index);
+			if(!seen[c]){
+				seen[c] = true;
+				distinct++;
+			}
+		}
+		return distinct;
+	}
+
+	/**
+	 * @return the length of the longest line through the grid
+	 */
+	private static int longestLine(Grid3D grid){
+		return Math.max(Math.max(grid.getSizeX(), grid.getSizeY()), grid.getSizeZ());
+	}
+
+	/**
+	 * Records that b sits next to a, if both are ASCII
+	 */
+	private void addPair(char a, char b){
+		if(a < ASCII && b < ASCII){
+			final int bit = a * ASCII + b;
+			asciiPairs[bit >>> 6] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * @return if b sits next to a, for ASCII a and b
+	 */
+	private boolean hasPair(char a, char b){
+		final int bit = a * ASCII + b;
+		return (asciiPairs[bit >>> 6] & 1L << bit) != 0;
+	}
+
+	/**
+	 * Records a run in the Bloom filter under two bits
+	 * @param hash the polynomial hash of the run
+	 */
+	private void addRun(long hash){
+		final long mixed = mix(hash);
+		final long first = mixed & runMask;
+		final long second = (mixed >>> 32 ^ mixed * 31) & runMask;
+		runs[(int) (first >>> 6)] |= 1L << first;
+		runs[(int) (second >>> 6)] |= 1L << second;
+	}
+
+	/**
+	 * Checks for a run in the Bloom filter
+	 * @param hash the polynomial hash of the run
+	 * @return if the run might have been recorded
+	 */
+	private boolean hasRun(long hash){
+		final long mixed = mix(hash);
+		final long first = mixed & runMask;
+		final long second = (mixed >>> 32 ^ mixed * 31) & runMask;
+		return (runs[(int) (first >>> 6)] & 1L << first) != 0 && (runs[(int) (second >>> 6)] & 1L << second) != 0;
+	}
+
+	/**
+	 * Spreads the bits of a hash so any subset of them can be used as an index
+	 */
+	private static long mix(long hash){
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,126 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs several attempts at make at once and keeps the first grid found.
+ * How long the placement search takes depends heavily on the random order it tries placements in, so
+ * racing a few independently seeded attempts cuts the slow runs short. Each attempt has its own grid and
+ * its own random stream split from one root, so nothing is shared between threads. As soon as one attempt succeeds, or proves the
+ * words can't fit, the rest are interrupted and stop at their next check.
+ */
+public class ParallelGenerator {
+
+	private final WordSearch3D wordSearch;
+	private final int parallelism;
+
+	/**
+	 * @param wordSearch used to fill in the grid once the words are placed
+	 * @param parallelism number of attempts to run at once, at least 1
+	 */
+	public ParallelGenerator(WordSearch3D wordSearch, int parallelism){
+		if(parallelism < 1){
+			throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+		}
+		this.wordSearch = wordSearch;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Tries to create a word search puzzle of the specified size with the specified list of words.
+	 * @param words the list of words to embed in the grid
+	 * @param sizeX size of the grid along first dimension
+	 * @param sizeY size of the grid along second dimension
+	 * @param sizeZ size of the grid along third dimension
+	 * @param maxChecks most placements each attempt may check before giving up
+	 * @return the first grid found, or null if no attempt found one
+	 */
+	public Grid3D make(String[] words, int sizeX, int sizeY, int sizeZ, long maxChecks){
+
+		// Split every attempt's stream off up front, so the attempts don't share one
+		final SplittableRandom root = new SplittableRandom();
+		final AtomicBoolean impossible = new AtomicBoolean();
+		final List<Callable<Grid3D>> attempts = new ArrayList<>(parallelism);
+		for(int i = 0; i < parallelism; i++){
+			attempts.add(new Attempt(words, sizeX, sizeY, sizeZ, maxChecks, root.split(), impossible));
+		}
+
+		final ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+		final List<Future<Grid3D>> running = new ArrayList<>(parallelism);
+		try {
+			final ExecutorCompletionService<Grid3D> finished = new ExecutorCompletionService<>(pool);
+			for(Callable<Grid3D> attempt : attempts){
+				running.add(finished.submit(attempt));
+			}
+
+			// Take attempts as they finish; the first grid wins, and an attempt proving there is none ends the race
+			for(int i = 0; i < attempts.size(); i++){
+				final Grid3D grid = finished.take().get();
+				if(grid != null){
+					return grid;
+				}
+				if(impossible.get()){
+					return null;
+				}
+			}
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			for(Future<Grid3D> attempt : running){
+				attempt.cancel(true);
+			}
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * One attempt at placing the words, with its own grid and random stream
+	 */
+	private class Attempt implements Callable<Grid3D> {
+		private final String[] words;
+		private final int sizeX;
+		private final int sizeY;
+		private final int sizeZ;
+		private final long maxChecks;
+		private final SplittableRandom rng;
+
+		// Set by whichever attempt proves the words can't fit
+		private final AtomicBoolean impossible;
+
+		Attempt(String[] words, int sizeX, int sizeY, int sizeZ, long maxChecks, SplittableRandom rng, AtomicBoolean impossible){
+			this.words = words;
+			this.sizeX = sizeX;
+			this.sizeY = sizeY;
+			this.sizeZ = sizeZ;
+			this.maxChecks = maxChecks;
+			this.rng = rng;
+			this.impossible = impossible;
+		}
+
+		@Override
+		public Grid3D call(){
+			final Grid3D grid = new Grid3D(sizeX, sizeY, sizeZ);
+			final PlacementEngine engine = new PlacementEngine(grid, words, rng, maxChecks);
+			engine.setListener(wordSearch.getMetricsListener());
+			if(!engine.place()){
+				if(engine.isImpossible()){
+					impossible.set(true);
+				}
+				return null;
+			}
+			wordSearch.fillGrid(grid, rng);
+			return grid;
+		}
+	}
+}
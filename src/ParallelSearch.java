@@ -0,0 +1,288 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs searchForAll across several threads. All the words go into one {@link AhoCorasickSearch}, and the lines
+ * of the grid it walks are shared out between the threads: each takes the lines in one direction that start
+ * in a band of the grid. Each word's lowest hit key over all the bands is its hit, the same one a single pass
+ * finds, so the grid is still read once in each direction however many threads there are.
+ * Grids with blanks can't use the automaton, so there the word list is split into one chunk per thread and
+ * each word is scanned for on its own. A word searched on its own in a large grid is instead split into slabs
+ * of x-planes. A slab's hit is only used if no earlier slab has one, which again gives exactly the sequential
+ * results, and once a slab has a hit, the slabs above it that haven't started are skipped.
+ * Searches run in the common pool when they ask for its parallelism, and otherwise in a pool kept for that
+ * parallelism; parallelism above the number of cores gets no pool of its own, so there are at most that many.
+ * The work done by every thread is added up and reported to the metrics listener once for the whole search.
+ */
+public class ParallelSearch {
+
+	/** Number of threads used when none is given */
+	public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+	// Grids with at least this many cells are split into slabs when searching for a single word
+	private static final int SLAB_THRESHOLD = 1 << 20;
+
+	// The pool for each parallelism up to the number of cores, other than the common pool's, made on first use
+	private static final ConcurrentMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+	// Bands each direction's lines are split into, per thread, so threads that finish early can take more
+	private static final int BANDS_PER_THREAD = 2;
+
+	private final WordSearch3D wordSearch;
+	private final int parallelism;
+
+	/**
+	 * @param wordSearch whose metrics listener is told of each search
+	 * @param parallelism number of threads to use, at least 1
+	 */
+	public ParallelSearch(WordSearch3D wordSearch, int parallelism){
+		if(parallelism < 1){
+			throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+		}
+		this.wordSearch = wordSearch;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Searches for all the words in the specified list in the specified grid.
+	 * @param grid the grid of characters comprising the word search puzzle
+	 * @param words the words to search for
+	 * @return for each word, the list of the (3-d) locations of its letters, or null if it is not in the grid
+	 */
+	public int[][][] searchForAll(Grid3D grid, String[] words){
+		final int[][][] locations = new int[words.length][][];
+		if(words.length == 0){
+			return locations;
+		}
+
+		final MetricsListener listener = wordSearch.getMetricsListener();
+		final Work work = listener == null ? null : new Work();
+		final long start = System.nanoTime();
+		if(grid.hasBlanks() || (words.length == 1 && grid.size() >= SLAB_THRESHOLD)){
+			final int chunkSize = Math.max(1, (words.length + parallelism - 1) / parallelism);
+			pool(parallelism).invoke(new WordsTask(grid, words, locations, 0, words.length, chunkSize, work));
+		}else {
+			final AhoCorasickSearch automaton = new AhoCorasickSearch(words);
+			final int bands = parallelism * BANDS_PER_THREAD;
+			final long[] best = pool(parallelism).invoke(new LinesTask(grid, automaton, bands, 0, Grid3D.DIRECTIONS.length * bands));
+			final int[][][] found = automaton.toLocations(grid, best);
+			System.arraycopy(found, 0, locations, 0, found.length);
+
+			// The automaton reads every cell once in each direction
+			if(work != null){
+				work.cellsScanned.add((long) grid.size() * Grid3D.DIRECTIONS.length);
+			}
+		}
+
+		if(listener != null){
+			int found = 0;
+			for(int[][] location : locations){
+				if(location != null){
+					found++;
+				}
+			}
+			listener.searchedAll(words.length, found, work.cellsScanned.sum(), work.directionsProbed.sum(), System.nanoTime() - start);
+		}
+		return locations;
+	}
+
+	/**
+	 * @return the shared pool with the given parallelism, or the number of cores if that is less, making it if
+	 * there is none yet
+	 */
+	private static ForkJoinPool pool(int parallelism){
+		parallelism = Math.min(parallelism, DEFAULT_PARALLELISM);
+		if(parallelism == ForkJoinPool.getCommonPoolParallelism()){
+			return ForkJoinPool.commonPool();
+		}
+		final ForkJoinPool pool = POOLS.get(parallelism);
+		if(pool != null){
+			return pool;
+		}
+		final ForkJoinPool made = new ForkJoinPool(parallelism);
+		final ForkJoinPool raced = POOLS.putIfAbsent(parallelism, made);
+		if(raced != null){
+			made.shutdown();
+			return raced;
+		}
+		return made;
+	}
+
+	/**
+	 * Walks a range of the (direction, band) pairs through the automaton, splitting it in half until it is one
+	 * pair, and combines the hits of the halves
+	 */
+	private static class LinesTask extends RecursiveTask<long[]> {
+		private static final long serialVersionUID = 1L;
+
+		private final Grid3D grid;
+		private final AhoCorasickSearch automaton;
+		private final int bands;
+		private final int from;
+		private final int to;
+
+		LinesTask(Grid3D grid, AhoCorasickSearch automaton, int bands, int from, int to){
+			this.grid = grid;
+			this.automaton = automaton;
+			this.bands = bands;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected long[] compute(){
+			if(to - from > 1){
+				final int middle = (from + to) >>> 1;
+				final LinesTask upper = new LinesTask(grid, automaton, bands, middle, to);
+				upper.fork();
+				final long[] best = new LinesTask(grid, automaton, bands, from, middle).compute();
+				AhoCorasickSearch.mergeHits(best, upper.join());
+				return best;
+			}
+
+			// Band along an axis the direction doesn't move in, so its lines start all across the band;
+			// diagonals move in every axis, and use x
+			final int direction = from / bands;
+			final int band = from % bands;
+			final int[] dir = Grid3D.DIRECTIONS[direction];
+			final int axis = dir[0] == 0 ? 0 : dir[1] == 0 ? 1 : dir[2] == 0 ? 2 : 0;
+			final long size = axis == 0 ? grid.getSizeX() : axis == 1 ? grid.getSizeY() : grid.getSizeZ();
+			final long[] best = automaton.newHits();
+			automaton.scanLines(grid, direction, axis, (int) (size * band / bands), (int) (size * (band + 1) / bands), best);
+			return best;
+		}
+	}
+
+	/**
+	 * Searches for a range of the words one at a time, splitting it in half until it is one chunk
+	 */
+	private class WordsTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Grid3D grid;
+		private final String[] words;
+		private final int[][][] locations;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+		private final Work work;
+
+		WordsTask(Grid3D grid, String[] words, int[][][] locations, int from, int to, int chunkSize, Work work){
+			this.grid = grid;
+			this.words = words;
+			this.locations = locations;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.work = work;
+		}
+
+		@Override
+		protected void compute(){
+			if(to - from > chunkSize){
+				final int middle = (from + to) >>> 1;
+				invokeAll(new WordsTask(grid, words, locations, from, middle, chunkSize, work),
+						new WordsTask(grid, words, locations, middle, to, chunkSize, work));
+				return;
+			}
+
+			// A lone word in a big grid is worth splitting across the grid instead
+			if(to - from == 1 && grid.size() >= SLAB_THRESHOLD){
+				final int slabSize = Math.max(1, grid.getSizeX() / (parallelism * 4));
+				locations[from] = new SlabTask(grid, words[from], 0, grid.getSizeX(), slabSize, new AtomicInteger(Integer.MAX_VALUE), work).compute();
+				return;
+			}
+
+			final long[] stats = work == null ? null : new long[2];
+			for(int i = from; i < to; i++){
+				locations[i] = WordSearch3D.scan(grid, words[i], 0, grid.getSizeX(), stats);
+			}
+			if(work != null){
+				work.add(stats);
+			}
+		}
+	}
+
+	/**
+	 * Searches for a word starting in a range of x-planes, splitting the range in half until it is one slab.
+	 * The lower half's hit wins, so the first hit is the same as a sequential search.
+	 */
+	private class SlabTask extends RecursiveTask<int[][]> {
+		private static final long serialVersionUID = 1L;
+
+		private final Grid3D grid;
+		private final String word;
+		private final int xFrom;
+		private final int xTo;
+		private final int slabSize;
+		private final Work work;
+
+		// The lowest first plane of a slab with a hit so far, shared by every slab of the search
+		private final AtomicInteger lowestHit;
+
+		SlabTask(Grid3D grid, String word, int xFrom, int xTo, int slabSize, AtomicInteger lowestHit, Work work){
+			this.grid = grid;
+			this.word = word;
+			this.xFrom = xFrom;
+			this.xTo = xTo;
+			this.slabSize = slabSize;
+			this.lowestHit = lowestHit;
+			this.work = work;
+		}
+
+		@Override
+		protected int[][] compute(){
+			// A hit in a lower slab beats anything this one could find
+			if(lowestHit.get() < xFrom){
+				return null;
+			}
+
+			if(xTo - xFrom <= slabSize){
+				final long[] stats = work == null ? null : new long[2];
+				final int[][] location = WordSearch3D.scan(grid, word, xFrom, xTo, stats);
+				if(work != null){
+					work.add(stats);
+				}
+				if(location != null){
+					int lowest = lowestHit.get();
+					while(xFrom < lowest && !lowestHit.compareAndSet(lowest, xFrom)){
+						lowest = lowestHit.get();
+					}
+				}
+				return location;
+			}
+
+			final int middle = (xFrom + xTo) >>> 1;
+			final SlabTask upper = new SlabTask(grid, word, middle, xTo, slabSize, lowestHit, work);
+			upper.fork();
+			final int[][] lower = new SlabTask(grid, word, xFrom, middle, slabSize, lowestHit, work).compute();
+
+			// The upper half is only worth waiting for without a hit below it
+			if(lower != null){
+				if(!upper.tryUnfork()){
+					upper.join();
+				}
+				return lower;
+			}
+			return upper.join();
+		}
+	}
+
+	/**
+	 * The work done by all the tasks of one search, added up as they finish
+	 */
+	private static final class Work {
+		final LongAdder cellsScanned = new LongAdder();
+		final LongAdder directionsProbed = new LongAdder();
+
+		void add(long[] stats){
+			cellsScanned.add(stats[0]);
+			directionsProbed.add(stats[1]);
+		}
+	}
+}
@@ -0,0 +1,451 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+
+/**
+ * Places a list of words into a grid by depth-first search with backtracking.
+ * Words are placed longest first, since they have the fewest places to go. For each word the engine walks
+ * through every in-bounds (start cell, direction) pair from a {@link PlacementTable} in a random order,
+ * placing the word at the first one that doesn't clash with letters already in the grid.
+ * When a word has nowhere left to go, the word before it is moved to its next place that fits.
+ *
+ * Unlike retrying random placements, this never tries the same placement twice for the same partial grid,
+ * and it tries them all, so running out of placements proves the words can't fit. The search is bounded by
+ * a budget of placement checks, and optionally a deadline, since proving that can take a long time for some
+ * word lists.
+ *
+ * An unlucky first few placements can leave the search stuck below them for a very long time, though a
+ * different start would succeed at once. So a search that uses up {@link #FIRST_RUN_CHECKS} starts again with
+ * new random walks and twice as many checks, and so on until a run is given the rest of the budget. Only a
+ * run that ends without using up its share has tried everything, so the proof above still holds.
+ */
+public class PlacementEngine {
+
+	private final Grid3D grid;
+	private final String[] words;
+	private final SplittableRandom rng;
+	private final long maxChecks;
+
+	// The in-bounds placements of each word, shared between words of the same length
+	private final PlacementTable[] tables;
+
+	// Index deltas for each of the 26 directions
+	private final int[] deltas;
+
+	// Cells filled in by each placed word, so they can be cleared again when backtracking
+	private final int[] filled;
+	private final int[] filledMark;
+
+	// Where each word is in its walk through the placements: steps taken, next placement, and stride of the walk
+	private final long[] step;
+	private final long[] position;
+	private final long[] stride;
+
+	// Where each placed word is: its start cell and direction
+	private final int[] placedStart;
+	private final int[] placedDirection;
+
+	// How often, in placement checks, to see if the thread has been interrupted, cancelled or is out of time
+	private static final int INTERRUPT_CHECK_INTERVAL = 1024;
+
+	/** Checks the first run of the search gets before starting again */
+	static final long FIRST_RUN_CHECKS = 1 << 16;
+
+	private long checks;
+
+	// Checks at which the current run starts again, or maxChecks for the last run
+	private long runEnd;
+
+	// When to give up, as a System.nanoTime() value, and the token that cancels the search, if any
+	private boolean hasDeadline;
+	private long deadline;
+	private CancelToken cancelToken;
+
+	// Why the search was told to stop early, or null
+	private GenerationResult.Outcome stopped;
+
+	// How the last call to place ended
+	private GenerationResult.Outcome outcome;
+
+	// The most words placed at once so far, and where they went, if kept
+	private boolean keepPartial;
+	private int bestDepth;
+	private int[] bestStart;
+	private int[] bestDirection;
+
+	// Told of each placement and backtrack, if set; and the checks and time at which each word began looking
+	private MetricsListener listener;
+	private long[] lookChecks;
+	private long[] lookNanos;
+
+	/**
+	 * @param grid empty grid to place the words in
+	 * @param words the words to place
+	 * @param rng source of the random order placements are tried in; the same seed gives the same placements
+	 * @param maxChecks most placements to check before giving up
+	 */
+	public PlacementEngine(Grid3D grid, String[] words, SplittableRandom rng, long maxChecks){
+		this.grid = grid;
+		this.rng = rng;
+		this.maxChecks = maxChecks;
+
+		// Longest words first; they have the fewest places to go
+		this.words = words.clone();
+		Arrays.sort(this.words, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b){
+				return b.length() - a.length();
+			}
+		});
+
+		deltas = new int[Grid3D.DIRECTIONS.length];
+		for(int d = 0; d < deltas.length; d++){
+			deltas[d] = grid.delta(d);
+		}
+
+		int totalLength = 0;
+		final PlacementTable[] byLength = new PlacementTable[this.words.length == 0 ? 0 : this.words[0].length() + 1];
+		tables = new PlacementTable[words.length];
+		for(int i = 0; i < this.words.length; i++){
+			final int length = this.words[i].length();
+			if(byLength[length] == null){
+				byLength[length] = new PlacementTable(grid, length);
+			}
+			tables[i] = byLength[length];
+			totalLength += length;
+		}
+		filled = new int[totalLength];
+		filledMark = new int[words.length + 1];
+		step = new long[words.length];
+		position = new long[words.length];
+		stride = new long[words.length];
+		placedStart = new int[words.length];
+		placedDirection = new int[words.length];
+	}
+
+	/**
+	 * Sets a time after which {@link #place()} gives up
+	 * @param deadline the time, as a {@link System#nanoTime()} value
+	 */
+	public void setDeadline(long deadline){
+		this.hasDeadline = true;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Sets a token that makes {@link #place()} give up once it is cancelled
+	 * @param cancelToken the token, or null for none
+	 */
+	public void setCancelToken(CancelToken cancelToken){
+		this.cancelToken = cancelToken;
+	}
+
+	/**
+	 * Sets whether {@link #place()}, when it fails, leaves the most words it managed to place at once in the
+	 * grid instead of leaving it empty. Words are placed in order, so these are always the first words of
+	 * {@link #getWords()}, however many later words might fit without them.
+	 * @param keepPartial if the best partial placement is kept
+	 */
+	public void setKeepPartial(boolean keepPartial){
+		this.keepPartial = keepPartial;
+		if(keepPartial && bestStart == null){
+			bestStart = new int[words.length];
+			bestDirection = new int[words.length];
+		}
+	}
+
+	/**
+	 * Sets the listener told of each word placed, each backtrack, each restart and the end of {@link #place()}
+	 * @param listener the listener, or null for none
+	 */
+	public void setListener(MetricsListener listener){
+		this.listener = listener;
+		if(listener != null && lookChecks == null){
+			lookChecks = new long[words.length];
+			lookNanos = new long[words.length];
+		}
+	}
+
+	/**
+	 * Places every word in the grid
+	 * @return true if every word was placed; false if they can't all fit, the budget ran out first, the
+	 * deadline passed, or the thread was interrupted or the search cancelled, in which case the grid is left
+	 * empty, or holding the best partial placement if that is kept
+	 */
+	public boolean place(){
+		if(listener == null){
+			return placeAll();
+		}
+		final long checksBefore = checks;
+		final long start = System.nanoTime();
+		final boolean placed = placeAll();
+		listener.generated(words, placed, checks - checksBefore, System.nanoTime() - start);
+		return placed;
+	}
+
+	private boolean placeAll(){
+		bestDepth = 0;
+		stopped = null;
+		if(!couldFit()){
+			outcome = GenerationResult.Outcome.IMPOSSIBLE;
+			return false;
+		}
+
+		int depth = 0;
+		long runChecks = FIRST_RUN_CHECKS;
+		runEnd = maxChecks - checks <= runChecks ? maxChecks : checks + runChecks;
+		if(words.length > 0){
+			startWalk(0);
+		}
+
+		while(depth < words.length){
+			if(tryNextPlacement(depth)){
+				if(listener != null){
+					listener.wordPlaced(words[depth], checks - lookChecks[depth], System.nanoTime() - lookNanos[depth]);
+				}
+				depth++;
+				if(keepPartial && depth > bestDepth){
+					System.arraycopy(placedStart, 0, bestStart, 0, depth);
+					System.arraycopy(placedDirection, 0, bestDirection, 0, depth);
+					bestDepth = depth;
+				}
+				if(depth < words.length){
+					startWalk(depth);
+				}
+				continue;
+			}
+
+			// A run that has used up its share starts again from nothing, with twice the share
+			if(checks >= runEnd && runEnd < maxChecks && stopped == null){
+				for(int n = 0; n < filledMark[depth]; n++){
+					grid.set(filled[n], '\u0000');
+				}
+				depth = 0;
+				if(listener != null){
+					listener.restarted(checks);
+				}
+				runChecks *= 2;
+				runEnd = maxChecks - checks <= runChecks ? maxChecks : checks + runChecks;
+				startWalk(0);
+				continue;
+			}
+
+			// This word has nowhere left to go given the words before it, or we're out of budget
+			if(depth == 0 || checks >= maxChecks || stopped != null){
+				outcome = stopped != null ? stopped
+						: checks >= maxChecks ? GenerationResult.Outcome.OUT_OF_CHECKS : GenerationResult.Outcome.IMPOSSIBLE;
+				for(int n = 0; n < filledMark[depth]; n++){
+					grid.set(filled[n], '\u0000');
+				}
+				if(keepPartial){
+					for(int i = 0; i < bestDepth; i++){
+						write(i, words[i], bestStart[i], bestDirection[i]);
+					}
+				}
+				return false;
+			}
+			depth--;
+			clear(depth);
+			if(listener != null){
+				listener.backtracked(words[depth]);
+				startLooking(depth);
+			}
+		}
+		bestDepth = words.length;
+		outcome = GenerationResult.Outcome.COMPLETE;
+		return true;
+	}
+
+	/**
+	 * @return if the last call to place proved the words can't all fit, rather than giving up
+	 */
+	public boolean isImpossible(){
+		return outcome == GenerationResult.Outcome.IMPOSSIBLE;
+	}
+
+	/**
+	 * @return how the last call to place ended, or null if it hasn't been called
+	 */
+	public GenerationResult.Outcome getOutcome(){
+		return outcome;
+	}
+
+	/**
+	 * @return the words in the order they are placed, longest first
+	 */
+	public String[] getWords(){
+		return words.clone();
+	}
+
+	/**
+	 * @return how many words, from the start of {@link #getWords()}, are in the grid after the last call to place:
+	 * all of them if it succeeded, the most placed at once if it failed and partial placements are kept, or none
+	 */
+	public int getPlacedCount(){
+		return outcome == GenerationResult.Outcome.COMPLETE || keepPartial ? bestDepth : 0;
+	}
+
+	/**
+	 * @return the number of placements checked so far
+	 */
+	public long getChecks(){
+		return checks;
+	}
+
+	/**
+	 * Rules out word lists that can't possibly fit, before searching
+	 * @return false if the words certainly can't all fit in the grid
+	 */
+	private boolean couldFit(){
+		final int longestSide = Math.max(Math.max(grid.getSizeX(), grid.getSizeY()), grid.getSizeZ());
+		final boolean[] letters = new boolean[Character.MAX_VALUE + 1];
+		int distinct = 0;
+		for(String word : words){
+			if(word.length() > longestSide){
+				return false;
+			}
+			for(int i = 0; i < word.length(); i++){
+				if(!letters[word.charAt(i)]){
+					letters[word.charAt(i)] = true;
+					distinct++;
+				}
+			}
+		}
+
+		// Every distinct letter needs a cell of its own
+		return distinct <= grid.size();
+	}
+
+	/**
+	 * Begins a new random walk through the placements for a word.
+	 * Stepping by a stride that shares no factor with the number of placements visits each one exactly once.
+	 * @param depth which word
+	 */
+	private void startWalk(int depth){
+		final long placements = tables[depth].size();
+		position[depth] = (long) (rng.nextDouble() * placements);
+		long s = 1 + (long) (rng.nextDouble() * (placements - 1));
+		while(gcd(s, placements) != 1){
+			s = s % (placements - 1) + 1;
+		}
+		stride[depth] = s;
+		step[depth] = 0;
+		filledMark[depth + 1] = filledMark[depth];
+		if(listener != null){
+			startLooking(depth);
+		}
+	}
+
+	/**
+	 * Notes when a word began looking for a place, for timing its placement
+	 * @param depth which word
+	 */
+	private void startLooking(int depth){
+		lookChecks[depth] = checks;
+		lookNanos[depth] = System.nanoTime();
+	}
+
+	/**
+	 * Moves a word along its walk to the next placement that fits, and places it there
+	 * @param depth which word
+	 * @return if the word was placed; false if its walk is over, the budget has run out, or the thread
+	 * has been interrupted
+	 */
+	private boolean tryNextPlacement(int depth){
+		final String word = words[depth];
+		final PlacementTable table = tables[depth];
+		final long placements = table.size();
+		while(step[depth] < placements && checks < runEnd){
+			final long placement = position[depth];
+			position[depth] = (placement + stride[depth]) % placements;
+			step[depth]++;
+			checks++;
+
+			// Give up if whoever is waiting for us no longer wants the answer
+			if(checks % INTERRUPT_CHECK_INTERVAL == 0 && shouldStop()){
+				return false;
+			}
+
+			final int direction = table.direction(placement);
+			final int start = table.start(placement, direction);
+			if(fits(word, start, direction)){
+				write(depth, word, start, direction);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the thread has been interrupted, the search cancelled or the deadline passed
+	 * @return if the search should stop
+	 */
+	private boolean shouldStop(){
+		if(Thread.currentThread().isInterrupted() || (cancelToken != null && cancelToken.isCancelled())){
+			stopped = GenerationResult.Outcome.CANCELLED;
+		}else if(hasDeadline && System.nanoTime() - deadline >= 0){
+			stopped = GenerationResult.Outcome.TIMED_OUT;
+		}
+		return stopped != null;
+	}
+
+	/**
+	 * Checks if the word can be placed at an in-bounds start & direction without clashing with the letters
+	 * already in the grid
+	 * @param word word being placed
+	 * @param start flat index of the start cell
+	 * @param direction index into {@link Grid3D#DIRECTIONS}
+	 * @return if the word can be validly placed
+	 */
+	private boolean fits(String word, int start, int direction){
+		int index = start;
+		for(int i = 0; i < word.length(); i++, index += deltas[direction]){
+			final char current = grid.get(index);
+			if(current != '\u0000' && current != word.charAt(i)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes a word into the grid, remembering which cells were blank before
+	 * @param depth which word
+	 * @param word the word
+	 * @param start flat index of the start cell
+	 * @param direction index into {@link Grid3D#DIRECTIONS}
+	 */
+	private void write(int depth, String word, int start, int direction){
+		placedStart[depth] = start;
+		placedDirection[depth] = direction;
+		int mark = filledMark[depth];
+		int index = start;
+		for(int i = 0; i < word.length(); i++, index += deltas[direction]){
+			if(grid.get(index) == '\u0000'){
+				grid.set(index, word.charAt(i));
+				filled[mark++] = index;
+			}
+		}
+		filledMark[depth + 1] = mark;
+	}
+
+	/**
+	 * Takes a word back out of the grid
+	 * @param depth which word
+	 */
+	private void clear(int depth){
+		for(int n = filledMark[depth]; n < filledMark[depth + 1]; n++){
+			grid.set(filled[n], '\u0000');
+		}
+		filledMark[depth + 1] = filledMark[depth];
+	}
+
+	private static long gcd(long a, long b){
+		while(b != 0){
+			final long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+}
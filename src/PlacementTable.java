@@ -0,0 +1,75 @@
+/**
+ * Every in-bounds placement of a word of one length in a grid of one size.
+ * For each direction the start cells that keep the whole word on the grid form a box, so the table is just
+ * 26 boxes. Placements are numbered from 0 to {@link #size()} - 1, direction by direction, so a generator can
+ * pick or walk through them without ever landing on one that runs off the grid.
+ */
+public final class PlacementTable {
+
+	private final Grid3D grid;
+
+	// Corner of each direction's box of start cells, and its size along each axis
+	private final int[][] low = new int[Grid3D.DIRECTIONS.length][3];
+	private final int[][] extent = new int[Grid3D.DIRECTIONS.length][3];
+
+	// Number of placements in the directions before each one
+	private final long[] before = new long[Grid3D.DIRECTIONS.length + 1];
+
+	/**
+	 * Works out the placements of a word length in a grid
+	 * @param grid the grid
+	 * @param length length of the word
+	 */
+	public PlacementTable(Grid3D grid, int length){
+		this.grid = grid;
+		final int span = Math.max(0, length - 1);
+		final int[] sizes = { grid.getSizeX(), grid.getSizeY(), grid.getSizeZ() };
+
+		for(int d = 0; d < Grid3D.DIRECTIONS.length; d++){
+			long volume = 1;
+			for(int axis = 0; axis < 3; axis++){
+				final int step = Grid3D.DIRECTIONS[d][axis];
+
+				// Going backwards along an axis needs room behind the start; going forwards needs room ahead of it
+				low[d][axis] = step < 0 ? span : 0;
+				extent[d][axis] = Math.max(0, sizes[axis] - (step != 0 ? span : 0));
+				volume *= extent[d][axis];
+			}
+			before[d + 1] = before[d] + volume;
+		}
+	}
+
+	/**
+	 * @return the number of in-bounds placements
+	 */
+	public long size(){
+		return before[Grid3D.DIRECTIONS.length];
+	}
+
+	/**
+	 * @param placement a placement number from 0 to {@link #size()} - 1
+	 * @return the placement's direction, as an index into {@link Grid3D#DIRECTIONS}
+	 */
+	public int direction(long placement){
+		int d = 0;
+		while(before[d + 1] <= placement){
+			d++;
+		}
+		return d;
+	}
+
+	/**
+	 * @param placement a placement number from 0 to {@link #size()} - 1
+	 * @param direction the placement's direction, from {@link #direction(long)}
+	 * @return the flat index of the placement's start cell
+	 */
+	public int start(long placement, int direction){
+		final int[] box = extent[direction];
+		long offset = placement - before[direction];
+		final int z = (int) (offset % box[2]);
+		offset /= box[2];
+		final int y = (int) (offset % box[1]);
+		final int x = (int) (offset / box[1]);
+		return grid.index(low[direction][0] + x, low[direction][1] + y, low[direction][2] + z);
+	}
+}
@@ -0,0 +1,341 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the results of make and searchForAll, so asking again for the same thing is a lookup.
+ * Seeded generation always gives the same grid for the same words, sizes and seed, so its results are keyed
+ * by a SHA-256 hash of those. Search results are keyed by a hash of the grid's contents plus the word, so
+ * any grid with the same letters shares them, wherever it came from.
+ *
+ * Each kind of result is kept in its own map with its own bound, since a grid takes far more memory than the
+ * locations of one word, and the least recently used entry is dropped to make room. Generated grids can also
+ * be saved to a directory, one file per key, and are read back from there when they are no longer in memory,
+ * including by later runs. A saved file that can't be read, or doesn't hold a whole grid, counts as a miss.
+ * Grids are copied going in and coming out, so callers are free to change the arrays they get.
+ */
+public class PuzzleCache {
+
+	// Stands in for "make found no grid", so failures are remembered too
+	private static final Grid3D NO_GRID = new Grid3D(0, 0, 0);
+
+	// Stands in for "the word is not in the grid"
+	private static final int[][] NOT_FOUND = new int[0][];
+
+	private final WordSearch3D wordSearch;
+	private final File directory;
+	private final Map<String, Grid3D> grids;
+	private final Map<String, int[][]> searches;
+
+	private long hits;
+	private long misses;
+
+	/**
+	 * @param wordSearch used to make and search grids that aren't cached
+	 * @param maxEntries most grids, and most search results, to keep in memory
+	 * @param directory where to save generated grids, or null to keep them in memory only
+	 */
+	public PuzzleCache(WordSearch3D wordSearch, int maxEntries, File directory){
+		this(wordSearch, maxEntries, maxEntries, directory);
+	}
+
+	/**
+	 * @param wordSearch used to make and search grids that aren't cached
+	 * @param maxGrids most generated grids to keep in memory
+	 * @param maxSearches most search results, one per grid and word, to keep in memory
+	 * @param directory where to save generated grids, or null to keep them in memory only
+	 */
+	public PuzzleCache(WordSearch3D wordSearch, int maxGrids, int maxSearches, File directory){
+		if(maxGrids < 1){
+			throw new IllegalArgumentException("Cache must hold at least 1 grid: " + maxGrids);
+		}
+		if(maxSearches < 1){
+			throw new IllegalArgumentException("Cache must hold at least 1 search result: " + maxSearches);
+		}
+		if(directory != null && !directory.isDirectory() && !directory.mkdirs()){
+			throw new IllegalArgumentException("Can't create cache directory: " + directory);
+		}
+		this.wordSearch = wordSearch;
+		this.directory = directory;
+		this.grids = new LruMap<>(maxGrids);
+		this.searches = new LruMap<>(maxSearches);
+	}
+
+	/**
+	 * Makes a puzzle with a seed, as {@link WordSearch3D#make(String[], int, int, int, long)} does, unless it has
+	 * been made before
+	 * @param words the list of words to embed in the grid
+	 * @param sizeX size of the grid along first dimension
+	 * @param sizeY size of the grid along second dimension
+	 * @param sizeZ size of the grid along third dimension
+	 * @param seed seed for the placement of the words and the filler letters
+	 * @return a 3-d char array if successful that contains all the words, or <tt>null</tt> if
+	 * no satisfying grid could be found.
+	 */
+	public char[][][] make(String[] words, int sizeX, int sizeY, int sizeZ, long seed){
+		final String key = makeKey(words, sizeX, sizeY, sizeZ, seed);
+		Grid3D grid;
+		synchronized(this){
+			grid = grids.get(key);
+			if(grid == null){
+				grid = load(key);
+				if(grid != null){
+					grids.put(key, grid);
+				}
+			}
+			if(grid != null){
+				hits++;
+				return grid == NO_GRID ? null : grid.toArray();
+			}
+			misses++;
+		}
+
+		final char[][][] made = wordSearch.make(words, sizeX, sizeY, sizeZ, seed);
+		grid = made == null ? NO_GRID : Grid3D.fromArray(made);
+		synchronized(this){
+			grids.put(key, grid);
+		}
+		save(key, grid);
+		return made;
+	}
+
+	/**
+	 * Searches for all the words, as {@link WordSearch3D#searchForAll(char[][][], String[])} does, only searching
+	 * for the words that haven't been searched for in a grid with the same contents before
+	 * @param grid the grid of characters comprising the word search puzzle
+	 * @param words the words to search for
+	 * @return for each word, the list of the (3-d) locations of its letters, or null if it is not in the grid
+	 */
+	public int[][][] searchForAll(char[][][] grid, String[] words){
+		final String gridKey = gridKey(grid);
+		final int[][][] locations = new int[words.length][][];
+
+		// Look up every word first, and gather the rest to search for together
+		int missing = 0;
+		final boolean[] found = new boolean[words.length];
+		synchronized(this){
+			for(int i = 0; i < words.length; i++){
+				final int[][] cached = searches.get(gridKey + '\u0000' + words[i]);
+				if(cached != null){
+					hits++;
+					found[i] = true;
+					locations[i] = cached == NOT_FOUND ? null : copy(cached);
+				} else {
+					misses++;
+					missing++;
+				}
+			}
+		}
+		if(missing == 0){
+			return locations;
+		}
+
+		final String[] rest = new String[missing];
+		for(int i = 0, n = 0; i < words.length; i++){
+			if(!found[i]){
+				rest[n++] = words[i];
+			}
+		}
+		final int[][][] searched = wordSearch.searchForAll(grid, rest);
+		synchronized(this){
+			for(int i = 0, n = 0; i < words.length; i++){
+				if(!found[i]){
+					locations[i] = searched[n];
+					searches.put(gridKey + '\u0000' + words[i], searched[n] == null ? NOT_FOUND : copy(searched[n]));
+					n++;
+				}
+			}
+		}
+		return locations;
+	}
+
+	/**
+	 * @return the number of lookups answered from the cache
+	 */
+	public synchronized long getHits(){
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups that had to be made or searched for
+	 */
+	public synchronized long getMisses(){
+		return misses;
+	}
+
+	/**
+	 * Forgets everything held in memory; saved grids are kept
+	 */
+	public synchronized void clear(){
+		grids.clear();
+		searches.clear();
+	}
+
+	/**
+	 * Reads a saved grid
+	 * @param key the grid's key
+	 * @return the grid, {@link #NO_GRID}, or null if it isn't saved, can't be read or is corrupt
+	 */
+	private Grid3D load(String key){
+		if(directory == null){
+			return null;
+		}
+		final File file = new File(directory, key + ".grid");
+		if(!file.isFile()){
+			return null;
+		}
+		try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			final int sizeX = in.readInt();
+			if(sizeX == -1){
+				return NO_GRID;
+			}
+
+			// Only make grids of sizes make accepts, and only as many cells as the file holds
+			final int sizeY = in.readInt();
+			final int sizeZ = in.readInt();
+			if(sizeX < 1 || sizeY < 1 || sizeZ < 1 || 12 + 2L * sizeX * sizeY * sizeZ != file.length()){
+				return null;
+			}
+			final Grid3D grid;
+			try {
+				grid = new Grid3D(sizeX, sizeY, sizeZ);
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+			for(int index = 0; index < grid.size(); index++){
+				grid.set(index, in.readChar());
+			}
+			return grid;
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Saves a grid, writing to a temporary file first so a reader never sees half a grid
+	 * @param key the grid's key
+	 * @param grid the grid, or {@link #NO_GRID}
+	 */
+	private void save(String key, Grid3D grid){
+		if(directory == null){
+			return;
+		}
+		final File file = new File(directory, key + ".grid");
+		final File temp = new File(directory, key + "." + Thread.currentThread().getId() + ".tmp");
+		try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			if(grid == NO_GRID){
+				out.writeInt(-1);
+			} else {
+				out.writeInt(grid.getSizeX());
+				out.writeInt(grid.getSizeY());
+				out.writeInt(grid.getSizeZ());
+				for(int index = 0; index < grid.size(); index++){
+					out.writeChar(grid.get(index));
+				}
+			}
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+			temp.delete();
+			return;
+		}
+		if(!temp.renameTo(file)){
+			temp.delete();
+		}
+	}
+
+	/**
+	 * @return the key of a seeded make
+	 */
+	private static String makeKey(String[] words, int sizeX, int sizeY, int sizeZ, long seed){
+		final MessageDigest digest = sha256();
+		update(digest, sizeX);
+		update(digest, sizeY);
+		update(digest, sizeZ);
+		update(digest, (int) (seed >>> 32));
+		update(digest, (int) seed);
+		update(digest, words.length);
+		for(String word : words){
+			// Lengths go in first, so the words can't run together into a different list
+			final byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+			update(digest, bytes.length);
+			digest.update(bytes);
+		}
+		return hex(digest.digest());
+	}
+
+	/**
+	 * @return the key of a grid's sizes and contents
+	 */
+	private static String gridKey(char[][][] grid){
+		final MessageDigest digest = sha256();
+		update(digest, grid.length);
+		update(digest, grid.length == 0 ? 0 : grid[0].length);
+		update(digest, grid.length == 0 || grid[0].length == 0 ? 0 : grid[0][0].length);
+		final byte[] bytes = new byte[grid.length == 0 || grid[0].length == 0 ? 0 : grid[0][0].length * 2];
+		for(char[][] plane : grid){
+			for(char[] row : plane){
+				for(int z = 0; z < row.length; z++){
+					bytes[2 * z] = (byte) (row[z] >>> 8);
+					bytes[2 * z + 1] = (byte) row[z];
+				}
+				digest.update(bytes);
+			}
+		}
+		return hex(digest.digest());
+	}
+
+	private static MessageDigest sha256(){
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to have SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void update(MessageDigest digest, int value){
+		digest.update((byte) (value >>> 24));
+		digest.update((byte) (value >>> 16));
+		digest.update((byte) (value >>> 8));
+		digest.update((byte) value);
+	}
+
+	private static String hex(byte[] bytes){
+		final StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for(byte b : bytes){
+			sb.append(Character.forDigit((b >>> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	private static int[][] copy(int[][] locations){
+		final int[][] copy = new int[locations.length][];
+		for(int i = 0; i < locations.length; i++){
+			copy[i] = locations[i].clone();
+		}
+		return copy;
+	}
+
+	/**
+	 * A map that drops its least recently used entry once it holds too many
+	 */
+	private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		private final int maxEntries;
+
+		LruMap(int maxEntries){
+			super(16, 0.75f, true);
+			this.maxEntries = maxEntries;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest){
+			return size() > maxEntries;
+		}
+	}
+}
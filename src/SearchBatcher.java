@@ -0,0 +1,231 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Answers searches of one grid from many threads at once, folding the words of queries that arrive together
+ * into a single {@link SearchableGrid#searchAll(String[])} pass. The searchable grid is kept for the batcher's
+ * lifetime, so its index and filter are built once rather than on every pass.
+ * Up to a set number of passes run at once, by default one per core. A query arriving while there is room for
+ * another pass runs one over whatever is queued. Queries arriving while every pass is taken wait, and when one
+ * ends, the first of them to wake runs the next pass over all of them. So no thread waits on a timer, searching
+ * is spread over the cores, and under load each pass serves every query that came in while the cores were busy.
+ * Queries asking for the same word get the same location arrays, which they mustn't change.
+ * Waiting is done on a lock rather than a monitor, so waiting virtual threads free their carrier threads.
+ * Each pass is reported to the metrics listener of the {@link WordSearch3D} given, if it has one, as a
+ * searchedAll call; the indexed grid doesn't count the cells it scans or directions it probes, so those are
+ * reported as 0.
+ */
+public class SearchBatcher {
+
+	private final WordSearch3D wordSearch;
+	private final Grid3D grid;
+	private final SearchableGrid searchable;
+
+	// Guards everything below, and signals waiting queries when a pass ends
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition passEnded = lock.newCondition();
+
+	private final int maxPasses;
+
+	// Queries waiting for a pass, and how many passes are running
+	private List<Query> queued = new ArrayList<>();
+	private int running;
+
+	private long passes;
+	private long queries;
+
+	/**
+	 * @param wordSearch whose metrics listener is told of each pass
+	 * @param grid the grid to search, which must not change while in use
+	 */
+	public SearchBatcher(WordSearch3D wordSearch, Grid3D grid){
+		this(wordSearch, grid, ParallelSearch.DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * @param wordSearch whose metrics listener is told of each pass
+	 * @param grid the grid to search, which must not change while in use
+	 * @param maxPasses most passes to run at once
+	 */
+	public SearchBatcher(WordSearch3D wordSearch, Grid3D grid, int maxPasses){
+		if(maxPasses < 1){
+			throw new IllegalArgumentException("Passes at once must be at least 1: " + maxPasses);
+		}
+		this.wordSearch = wordSearch;
+		this.grid = grid;
+		this.searchable = SearchableGrid.wrap(grid, null, true);
+		this.maxPasses = maxPasses;
+	}
+
+	public Grid3D getGrid(){
+		return grid;
+	}
+
+	/**
+	 * Searches for the specified word
+	 * @param word the word to search for
+	 * @return If the grid contains the word, then the method returns a list of the (3-d) locations of its letters;
+	 * if not, null
+	 */
+	public int[][] search(String word){
+		return searchForAll(new String[] { word })[0];
+	}
+
+	/**
+	 * Searches for all the words in the specified list, together with any other queries waiting
+	 * @param words the words to search for
+	 * @return for each word, the list of the (3-d) locations of its letters, or null if it is not in the grid
+	 */
+	public int[][][] searchForAll(String[] words){
+		final Query query = new Query(words);
+		final List<Query> batch;
+		lock.lock();
+		try {
+			queued.add(query);
+
+			// Wait for room for a pass, unless another query's pass has taken this one. Interrupts can't cut
+			// this short, since a query that gave up its turn could leave the queries after it waiting
+			while(!query.done && (query.taken || running >= maxPasses)){
+				passEnded.awaitUninterruptibly();
+			}
+			if(query.done){
+				return query.result();
+			}
+			running++;
+			batch = queued;
+			queued = new ArrayList<>();
+			for(Query taken : batch){
+				taken.taken = true;
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		try {
+			run(batch);
+		} finally {
+			lock.lock();
+			try {
+				passes++;
+				queries += batch.size();
+
+				// Wakes this pass's queries, and the queued ones so one of them can run the next pass
+				running--;
+				passEnded.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+		return query.result();
+	}
+
+	/**
+	 * @return passes over the grid run so far
+	 */
+	public long getPasses(){
+		lock.lock();
+		try {
+			return passes;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return queries answered so far
+	 */
+	public long getQueries(){
+		lock.lock();
+		try {
+			return queries;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Runs one pass for every word in a batch of queries, and answers them all
+	 */
+	private void run(List<Query> batch){
+
+		// Each distinct word is searched for once
+		final Map<String, Integer> ids = new LinkedHashMap<>();
+		for(Query query : batch){
+			for(String word : query.words){
+				if(!ids.containsKey(word)){
+					ids.put(word, ids.size());
+				}
+			}
+		}
+
+		// Anything thrown, errors included, goes to every query, since one left unanswered would wait forever
+		int[][][] found = null;
+		Throwable failure = null;
+		try {
+			final String[] words = ids.keySet().toArray(new String[0]);
+			final MetricsListener listener = wordSearch.getMetricsListener();
+			final long start = System.nanoTime();
+			found = searchable.searchAll(words);
+			if(listener != null){
+				int hits = 0;
+				for(int[][] location : found){
+					if(location != null){
+						hits++;
+					}
+				}
+				listener.searchedAll(words.length, hits, 0, 0, System.nanoTime() - start);
+			}
+		} catch (Throwable e) {
+			failure = e;
+		}
+
+		lock.lock();
+		try {
+			for(Query query : batch){
+				if(failure == null){
+					query.locations = new int[query.words.length][][];
+					for(int i = 0; i < query.words.length; i++){
+						query.locations[i] = found[ids.get(query.words[i])];
+					}
+				}
+				query.failure = failure;
+				query.done = true;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * One caller's words, whether a pass has taken them, and their answer once it has run; guarded by the
+	 * batcher's lock
+	 */
+	private static final class Query {
+		final String[] words;
+		int[][][] locations;
+		Throwable failure;
+		boolean taken;
+		boolean done;
+
+		Query(String[] words){
+			this.words = words;
+		}
+
+		int[][][] result(){
+			if(failure instanceof RuntimeException){
+				throw (RuntimeException) failure;
+			}
+			if(failure instanceof Error){
+				throw (Error) failure;
+			}
+			if(failure != null){
+				throw new IllegalStateException("Search failed", failure);
+			}
+			return locations;
+		}
+	}
+}
@@ -0,0 +1,293 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Serves searches of one grid over HTTP, using the JDK's built-in server. Queries that arrive together share a
+ * single pass over the grid through a {@link SearchBatcher}.
+ *
+ * GET /search?word=w finds one word. GET /searchForAll?words=a,b,c finds several, as does a POST to
+ * /searchForAll with the words in the body, separated by whitespace. Either way the answer is a JSON object
+ * mapping each word to the list of the x, y and z of its letters, or to null if it isn't in the grid.
+ *
+ * A POST body larger than {@link #MAX_BODY_BYTES} is refused with 413 rather than read into memory.
+ *
+ * Requests are handled on the executor given, one task each; by default that is a virtual thread per request
+ * where the JDK has them, or a growing pool of platform threads where it doesn't.
+ */
+public class SearchServer {
+
+	/**
+	 * Most bytes of POST body read for one request; about 100,000 words
+	 */
+	public static final int MAX_BODY_BYTES = 1 << 20;
+
+	private final HttpServer server;
+	private final SearchBatcher batcher;
+
+	// The executor, if this server made it and so must shut it down
+	private final ExecutorService ownExecutor;
+
+	/**
+	 * @param wordSearch used to search the grid
+	 * @param grid the grid to serve, which must not change while the server runs
+	 * @param address where to listen; port 0 picks a free one
+	 * @param executor runs the request handlers, or null for {@link #defaultExecutor()}
+	 * @throws IOException if the server can't listen on the address
+	 */
+	public SearchServer(WordSearch3D wordSearch, Grid3D grid, InetSocketAddress address, Executor executor) throws IOException {
+		this.batcher = new SearchBatcher(wordSearch, grid);
+		this.ownExecutor = executor == null ? defaultExecutor() : null;
+		this.server = HttpServer.create(address, 0);
+		server.setExecutor(executor == null ? ownExecutor : executor);
+		server.createContext("/search", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				handleSearch(exchange);
+			}
+		});
+		server.createContext("/searchForAll", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				handleSearchForAll(exchange);
+			}
+		});
+	}
+
+	/**
+	 * Makes an executor that runs each task on a new virtual thread if this JDK has them (Java 21 on), or
+	 * else on a pool of daemon threads that grows as needed and reuses idle ones
+	 * @return the executor
+	 */
+	public static ExecutorService defaultExecutor(){
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable){
+					final Thread thread = new Thread(runnable, "search-server");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Starts answering requests, in the background
+	 */
+	public void start(){
+		server.start();
+	}
+
+	/**
+	 * Stops answering requests
+	 * @param delaySeconds most time to give requests already being handled to finish
+	 */
+	public void stop(int delaySeconds){
+		server.stop(delaySeconds);
+		if(ownExecutor != null){
+			ownExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * @return the address the server listens on, with the port it picked if it was given 0
+	 */
+	public InetSocketAddress getAddress(){
+		return server.getAddress();
+	}
+
+	/**
+	 * @return the batcher answering the queries, whose counts show how well they are being shared
+	 */
+	public SearchBatcher getBatcher(){
+		return batcher;
+	}
+
+	private void handleSearch(HttpExchange exchange) throws IOException {
+		if(!"GET".equals(exchange.getRequestMethod())){
+			respond(exchange, 405, "Use GET\n");
+			return;
+		}
+		final String word = queryParameter(exchange, "word");
+		if(word == null){
+			respond(exchange, 400, "Missing word\n");
+			return;
+		}
+		answer(exchange, new String[] { word });
+	}
+
+	private void handleSearchForAll(HttpExchange exchange) throws IOException {
+		final List<String> words = new ArrayList<>();
+		if("POST".equals(exchange.getRequestMethod())){
+			final String body = readBody(exchange);
+			if(body == null){
+				respond(exchange, 413, "Body over " + MAX_BODY_BYTES + " bytes\n");
+				return;
+			}
+			for(String word : body.split("\\s+")){
+				if(!word.isEmpty()){
+					words.add(word);
+				}
+			}
+		}else if("GET".equals(exchange.getRequestMethod())){
+			final String list = queryParameter(exchange, "words");
+			if(list == null){
+				respond(exchange, 400, "Missing words\n");
+				return;
+			}
+			for(String word : list.split(",")){
+				if(!word.isEmpty()){
+					words.add(word);
+				}
+			}
+		}else {
+			respond(exchange, 405, "Use GET or POST\n");
+			return;
+		}
+		answer(exchange, words.toArray(new String[0]));
+	}
+
+	/**
+	 * Searches for the words and sends their locations back as JSON
+	 */
+	private void answer(HttpExchange exchange, String[] words) throws IOException {
+		final int[][][] locations;
+		try {
+			locations = batcher.searchForAll(words);
+		} catch (Throwable e) {
+
+			// Errors too, so the client gets an answer rather than a dropped connection
+			respond(exchange, 500, "Search failed: " + e + "\n");
+			return;
+		}
+
+		final StringBuilder json = new StringBuilder("{");
+		for(int i = 0; i < words.length; i++){
+			if(i > 0){
+				json.append(',');
+			}
+			appendString(json, words[i]);
+			json.append(':');
+			if(locations[i] == null){
+				json.append("null");
+				continue;
+			}
+			json.append('[');
+			for(int j = 0; j < locations[i].length; j++){
+				final int[] letter = locations[i][j];
+				json.append(j > 0 ? ",[" : "[").append(letter[0]).append(',').append(letter[1]).append(',').append(letter[2]).append(']');
+			}
+			json.append(']');
+		}
+		json.append("}\n");
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		respond(exchange, 200, json.toString());
+	}
+
+	/**
+	 * Appends a string as a JSON string literal
+	 */
+	private static void appendString(StringBuilder json, String s){
+		json.append('"');
+		for(int i = 0; i < s.length(); i++){
+			final char c = s.charAt(i);
+			if(c == '"' || c == '\\'){
+				json.append('\\').append(c);
+			}else if(c < 0x20){
+				json.append(String.format("\\u%04x", (int) c));
+			}else {
+				json.append(c);
+			}
+		}
+		json.append('"');
+	}
+
+	/**
+	 * @return the decoded value of a parameter in the request's query string, or null if it isn't there
+	 */
+	private static String queryParameter(HttpExchange exchange, String name) throws IOException {
+		final String query = exchange.getRequestURI().getRawQuery();
+		if(query == null){
+			return null;
+		}
+		for(String pair : query.split("&")){
+			final int equals = pair.indexOf('=');
+			final String key = equals < 0 ? pair : pair.substring(0, equals);
+			if(URLDecoder.decode(key, "UTF-8").equals(name)){
+				return equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the request body, or null if it is over {@link #MAX_BODY_BYTES}
+	 */
+	private static String readBody(HttpExchange exchange) throws IOException {
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (final InputStream in = exchange.getRequestBody()) {
+
+			// A declared length can be refused before reading anything
+			final String length = exchange.getRequestHeaders().getFirst("Content-Length");
+			try {
+				if(length != null && Long.parseLong(length.trim()) > MAX_BODY_BYTES){
+					return null;
+				}
+			} catch (NumberFormatException e) {
+				// Read it and see
+			}
+			final byte[] buffer = new byte[8192];
+			for(int read = in.read(buffer); read >= 0; read = in.read(buffer)){
+				if(body.size() + read > MAX_BODY_BYTES){
+					return null;
+				}
+				body.write(buffer, 0, read);
+			}
+		}
+		return new String(body.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		if(!exchange.getResponseHeaders().containsKey("Content-Type")){
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		}
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (final OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Loads a grid file, text or binary, and serves it until the process is stopped.
+	 * Run with "grid.txt port".
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2){
+			System.out.println("Usage: SearchServer grid port");
+			return;
+		}
+		final File gridFile = new File(args[0]);
+		final Grid3D grid = BinaryGridIO.isBinaryGrid(gridFile) ? BinaryGridIO.map(gridFile) : TextGridIO.readGrid(gridFile);
+		final SearchServer server = new SearchServer(new WordSearch3D(), grid, new InetSocketAddress(Integer.parseInt(args[1])), null);
+		server.start();
+		System.out.println("Serving " + args[0] + " on port " + server.getAddress().getPort());
+	}
+}
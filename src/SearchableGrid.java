@@ -0,0 +1,535 @@
+import java.util.Arrays;
+
+/**
+ * An immutable word search grid that can answer many queries. Structures that are worth building once
+ * per grid, like the first-letter index, the filter of runs of letters and the lines in each direction,
+ * are built on first use and then
+ * kept, so repeated queries don't redo that work. Safe to share between threads.
+ */
+public final class SearchableGrid {
+
+	/**
+	 * Number of ints a hit takes up in a hit buffer: start x, start y, start z and direction,
+	 * an index into {@link Grid3D#DIRECTIONS}
+	 */
+	public static final int HIT_SIZE = 4;
+
+	// Directions 13 to 25 are the opposites of 12 to 0, so their lines cover every direction
+	private static final int FIRST_LINE_DIRECTION = Grid3D.DIRECTIONS.length / 2;
+
+	private final Grid3D grid;
+
+	// Index deltas for each of the 26 directions
+	private final int[] deltas;
+
+	// Built on first use; a race only means building one twice
+	private volatile CharIndex index;
+	private volatile GridLines[] lines;
+	private volatile NGramFilter filter;
+	private volatile Boolean blanks;
+
+	// Whether to build a filter to reject absent words; not worth it for a grid that is only searched once
+	private final boolean filtered;
+
+	/**
+	 * Copies a grid so it can be searched
+	 * @param grid the grid of characters comprising the word search puzzle
+	 */
+	public SearchableGrid(char[][][] grid){
+		this(Grid3D.fromArray(grid), null, true);
+	}
+
+	/**
+	 * Copies a grid so it can be searched
+	 * @param grid the grid of characters comprising the word search puzzle
+	 */
+	public SearchableGrid(Grid3D grid){
+		this(grid.copy(), null, true);
+	}
+
+	/**
+	 * Uses a grid without copying it, for callers that won't change it while it's being searched
+	 * @param grid the grid of characters comprising the word search puzzle
+	 * @param index prebuilt index of the grid, or null to build one when needed
+	 * @param filtered whether to reject absent words with a {@link NGramFilter}
+	 */
+	private SearchableGrid(Grid3D grid, CharIndex index, boolean filtered){
+		this.grid = grid;
+		this.index = index;
+		this.filtered = filtered;
+		this.deltas = new int[Grid3D.DIRECTIONS.length];
+		for(int d = 0; d < deltas.length; d++){
+			deltas[d] = grid.delta(d);
+		}
+	}
+
+	/**
+	 * Wraps a grid without copying it
+	 * @param grid a grid that won't change while it's being searched
+	 * @param index prebuilt index of the grid, or null to build one when needed
+	 * @return the searchable grid
+	 */
+	static SearchableGrid wrap(Grid3D grid, CharIndex index){
+		return new SearchableGrid(grid, index, false);
+	}
+
+	/**
+	 * Wraps a grid without copying it, to be searched many times
+	 * @param grid a grid that won't change while it's being searched
+	 * @param index prebuilt index of the grid, or null to build one when needed
+	 * @param filtered whether to reject absent words with a {@link NGramFilter}
+	 * @return the searchable grid
+	 */
+	static SearchableGrid wrap(Grid3D grid, CharIndex index, boolean filtered){
+		return new SearchableGrid(grid, index, filtered);
+	}
+
+	public int getSizeX(){
+		return grid.getSizeX();
+	}
+
+	public int getSizeY(){
+		return grid.getSizeY();
+	}
+
+	public int getSizeZ(){
+		return grid.getSizeZ();
+	}
+
+	/**
+	 * @return the character at (x, y, z)
+	 */
+	public char get(int x, int y, int z){
+		return grid.get(x, y, z);
+	}
+
+	/**
+	 * Searches for the specified word, visiting only the cells that match its first letter
+	 * @param word the word to search for
+	 * @return If the grid contains the word, then the method returns a list of the (3-d) locations of its letters;
+	 * if not, null
+	 */
+	public int[][] search(String word){
+		final int[] hit = new int[HIT_SIZE];
+		return search(word, hit, 0) ? toLocations(hit, 0, word.length()) : null;
+	}
+
+	/**
+	 * Searches for the specified word without allocating anything, writing where it starts and the direction
+	 * it runs in into a buffer. Use {@link #toLocations(int[], int, int)} to get the locations of its letters.
+	 * @param word the word to search for
+	 * @param hits buffer to write the hit into
+	 * @param offset where in the buffer to write the {@link #HIT_SIZE} ints of the hit
+	 * @return if the grid contains the word; if not, the buffer is left alone
+	 */
+	public boolean search(String word, int[] hits, int offset){
+		if(!mightContain(word)){
+			return false;
+		}
+
+		// Positions are in ascending order, so the first hit is the same as for a full scan
+		final int[] starts = getIndex().positions(word.charAt(0));
+		for(int n = 0; n < starts.length; n++){
+			final int start = starts[n];
+			final int x = grid.x(start);
+			final int y = grid.y(start);
+			final int z = grid.z(start);
+			final int direction = loopThroughAllDirections(word, x, y, z);
+			if(direction >= 0){
+				writeHit(hits, offset, x, y, z, direction);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Searches for the specified word by streaming through copies of the grid's lines in 13 directions, rather than
+	 * trying every direction from each start cell. Finds the same hit as {@link #search(String)}.
+	 * Every query reads the whole grid 13 times, sequentially, whereas {@link #search(String)} only visits the cells
+	 * matching the first letter, so that is usually the faster of the two.
+	 * @param word the word to search for
+	 * @return If the grid contains the word, then the method returns a list of the (3-d) locations of its letters;
+	 * if not, null
+	 */
+	public int[][] searchAlongLines(String word){
+		if(!mightContain(word)){
+			return null;
+		}
+
+		long best = -1;
+		for(GridLines line : getLines()){
+			final long key = line.firstHit(word);
+			if(key >= 0 && (best < 0 || key < best)){
+				best = key;
+			}
+		}
+		if(best < 0){
+			return null;
+		}
+
+		final int start = (int) (best / Grid3D.DIRECTIONS.length);
+		final int[] hit = new int[HIT_SIZE];
+		writeHit(hit, 0, grid.x(start), grid.y(start), grid.z(start), (int) (best % Grid3D.DIRECTIONS.length));
+		return toLocations(hit, 0, word.length());
+	}
+
+	/**
+	 * Finds every place the word occurs, rather than just the first, in a single pass over the cells matching
+	 * its first letter. A palindrome is found once for each way it reads. A single letter is found once per cell,
+	 * in direction 0, as in search.
+	 * @param word the word to search for
+	 * @return the hits, in the order search tries them
+	 */
+	public HitList searchAllOccurrences(String word){
+		final HitList hits = new HitList(word.length());
+		searchAllOccurrences(word, hits);
+		return hits;
+	}
+
+	/**
+	 * Finds every place the word occurs, rather than just the first, and hands each one to a listener as it is
+	 * found. See {@link #searchAllOccurrences(String)}.
+	 * @param word the word to search for
+	 * @param listener receives the hits, in the order search tries them
+	 * @return the number of hits
+	 */
+	public int searchAllOccurrences(String word, HitListener listener){
+		if(!mightContain(word)){
+			return 0;
+		}
+
+		// A one-off search doesn't build an index just to use it once
+		final CharIndex built = filtered ? getIndex() : index;
+		final char first = word.charAt(0);
+		int count = 0;
+		if(built != null){
+			final int[] starts = built.positions(first);
+			for(int n = 0; n < starts.length; n++){
+				count += occurrencesFrom(word, starts[n], listener);
+			}
+		} else {
+			for(int start = 0; start < grid.size(); start++){
+				if(grid.get(start) == first){
+					count += occurrencesFrom(word, start, listener);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Reports every direction the word reads in from a start cell holding its first letter
+	 * @param word the word being searched for
+	 * @param start flat index of the start cell
+	 * @param listener receives the hits
+	 * @return the number of hits
+	 */
+	private int occurrencesFrom(String word, int start, HitListener listener){
+		final int x = grid.x(start);
+		final int y = grid.y(start);
+		final int z = grid.z(start);
+
+		// A single letter reads the same in every direction
+		if(word.length() == 1){
+			listener.hit(x, y, z, 0);
+			return 1;
+		}
+
+		int count = 0;
+		for(int d = 0; d < deltas.length; d++){
+			if(matches(word, x, y, z, Grid3D.DIRECTIONS[d], deltas[d])){
+				listener.hit(x, y, z, d);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Searches for all the words in the specified list without allocating anything per word, writing
+	 * each hit into a buffer
+	 * @param words the words to search for
+	 * @param hits buffer of at least {@link #HIT_SIZE} ints per word; word i's hit is written at i * HIT_SIZE,
+	 * or -1 if it is not in the grid
+	 * @return the number of words found
+	 */
+	public int searchAll(String[] words, int[] hits){
+		int found = 0;
+		for(int i = 0; i < words.length; i++){
+			if(search(words[i], hits, i * HIT_SIZE)){
+				found++;
+			} else {
+				Arrays.fill(hits, i * HIT_SIZE, (i + 1) * HIT_SIZE, -1);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Lists the (3-d) locations of the letters of a word from its hit
+	 * @param hits buffer holding the hit
+	 * @param offset where the hit is in the buffer
+	 * @param length length of the word
+	 * @return the locations of each letter
+	 */
+	public static int[][] toLocations(int[] hits, int offset, int length){
+		final int[] dir = Grid3D.DIRECTIONS[hits[offset + 3]];
+		final int[][] result = new int[length][3];
+		for(int i = 0; i < length; i++){
+			result[i][0] = hits[offset] + i * dir[0];
+			result[i][1] = hits[offset + 1] + i * dir[1];
+			result[i][2] = hits[offset + 2] + i * dir[2];
+		}
+		return result;
+	}
+
+	/**
+	 * Searches for all the words in the specified list
+	 * @param words the words to search for
+	 * @return for each word, the list of the (3-d) locations of its letters, or null if it is not in the grid
+	 */
+	public int[][][] searchAll(String[] words){
+
+		// Count the start cells the index would visit for the words that might be there
+		final CharIndex index = getIndex();
+		long candidates = 0;
+		for(int i = 0; i < words.length; i++){
+			if(mightContain(words[i])){
+				candidates += index.count(words[i].charAt(0));
+			}
+		}
+
+		// One pass over the whole grid is cheaper once most cells are start candidates anyway
+		if(candidates >= grid.size() && !hasBlanks()){
+			return new AhoCorasickSearch(words).searchForAll(grid);
+		}
+
+		final int[][][] locations = new int[words.length][][];
+		for(int i = 0; i < words.length; i++){
+			locations[i] = search(words[i]);
+		}
+		return locations;
+	}
+
+	/**
+	 * Checks if the grid contains the word, without working out where
+	 * @param word the word to search for
+	 * @return if the grid contains the word
+	 */
+	public boolean contains(String word){
+		if(!mightContain(word)){
+			return false;
+		}
+		final int[] starts = getIndex().positions(word.charAt(0));
+		for(int n = 0; n < starts.length; n++){
+			final int start = starts[n];
+			if(loopThroughAllDirections(word, grid.x(start), grid.y(start), grid.z(start)) >= 0){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the grid contains the word by matching it against the cached lines of the grid,
+	 * stopping at the first hit. See {@link #searchAlongLines(String)}.
+	 * @param word the word to search for
+	 * @return if the grid contains the word
+	 */
+	public boolean containsAlongLines(String word){
+		if(!mightContain(word)){
+			return false;
+		}
+		for(GridLines line : getLines()){
+			if(line.contains(word)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Searches for the specified word by scanning a range of x-planes for start positions, without using
+	 * the index. The rest of the word may extend outside the range.
+	 * @param word the word to search for
+	 * @param xFrom first x-plane to start from
+	 * @param xTo x-plane after the last one to start from
+	 * @return If the grid contains the word starting in the range, then the method returns a list of the (3-d)
+	 * locations of its letters; if not, null
+	 */
+	int[][] scan(String word, int xFrom, int xTo){
+		return scan(word, xFrom, xTo, null);
+	}
+
+	/**
+	 * Searches for the specified word like {@link #scan(String, int, int)}, counting the work done
+	 * @param word the word to search for
+	 * @param xFrom first x-plane to start from
+	 * @param xTo x-plane after the last one to start from
+	 * @param stats if not null, gets the cells scanned and the directions probed added to its first two elements
+	 * @return If the grid contains the word starting in the range, then the method returns a list of the (3-d)
+	 * locations of its letters; if not, null
+	 */
+	int[][] scan(String word, int xFrom, int xTo, long[] stats){
+		if(word.isEmpty()){
+			return null;
+		}
+
+		// Loop through every point in the range, tracking the coordinates alongside the flat index
+		final int startIndex = grid.index(xFrom, 0, 0);
+		int index = startIndex;
+		long candidates = 0;
+		for(int i = xFrom; i < xTo; i++){
+			for(int j = 0; j < grid.getSizeY(); j++){
+				for(int k = 0; k < grid.getSizeZ(); k++, index++){
+
+					// Check if the value at the current position matches the first letter of the word
+					if(grid.get(index) == word.charAt(0)){
+						candidates++;
+
+						// If the first letter matches, search in all 26 directions for the word
+						final int direction = loopThroughAllDirections(word, i, j, k);
+						if(direction >= 0){
+							if(stats != null){
+								stats[0] += index - startIndex + 1;
+								stats[1] += (candidates - 1) * deltas.length + direction + 1;
+							}
+							final int[] hit = new int[HIT_SIZE];
+							writeHit(hit, 0, i, j, k, direction);
+							return toLocations(hit, 0, word.length());
+						}
+					}
+				}
+			}
+		}
+		if(stats != null){
+			stats[0] += index - startIndex;
+			stats[1] += candidates * deltas.length;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the first-letter index, building it if needed
+	 */
+	CharIndex getIndex(){
+		CharIndex result = index;
+		if(result == null){
+			result = new CharIndex(grid);
+			index = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Cheaply rules out words that can't be in the grid
+	 * @param word the word to check
+	 * @return false if the word is certainly not in the grid, true if it might be
+	 */
+	private boolean mightContain(String word){
+		if(word.isEmpty()){
+			return false;
+		}
+		if(!filtered){
+			return true;
+		}
+		return getIndex().count(word.charAt(0)) > 0 && getFilter().mightContain(word);
+	}
+
+	/**
+	 * @return the filter of runs of characters, building it if needed
+	 */
+	NGramFilter getFilter(){
+		NGramFilter result = filter;
+		if(result == null){
+			result = new NGramFilter(grid);
+			filter = result;
+		}
+		return result;
+	}
+
+	/**
+	 * @return if any cell of the grid is blank, checking the grid the first time it's asked
+	 */
+	private boolean hasBlanks(){
+		Boolean result = blanks;
+		if(result == null){
+			result = grid.hasBlanks();
+			blanks = result;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the lines of the grid in 13 directions, building them if needed
+	 */
+	GridLines[] getLines(){
+		GridLines[] result = lines;
+		if(result == null){
+			result = new GridLines[Grid3D.DIRECTIONS.length - FIRST_LINE_DIRECTION];
+			for(int d = FIRST_LINE_DIRECTION; d < Grid3D.DIRECTIONS.length; d++){
+				result[d - FIRST_LINE_DIRECTION] = new GridLines(grid, d);
+			}
+			lines = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Loops through all 26 direction from a starting point & searches for the word in each of those directions.
+	 * @param word the word being searching for
+	 * @param xStart x coordinate of the starting position
+	 * @param yStart y coordinate of the starting position
+	 * @param zStart z coordinate of the starting position
+	 * @return the first direction the word reads in from this starting value, as an index into
+	 * {@link Grid3D#DIRECTIONS}, or -1 if there is none
+	 */
+	private int loopThroughAllDirections(String word, int xStart, int yStart, int zStart){
+		for(int d = 0; d < deltas.length; d++){
+			if(matches(word, xStart, yStart, zStart, Grid3D.DIRECTIONS[d], deltas[d])){
+				return d;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Writes a hit into a hit buffer
+	 */
+	private static void writeHit(int[] hits, int offset, int x, int y, int z, int direction){
+		hits[offset] = x;
+		hits[offset + 1] = y;
+		hits[offset + 2] = z;
+		hits[offset + 3] = direction;
+	}
+
+	/**
+	 * Checks if the word reads from a start cell in a direction. The start cell is assumed to hold the
+	 * first letter; any later letter may sit on a blank cell.
+	 * @param word the word being searched for
+	 * @param xStart starting x position
+	 * @param yStart starting y position
+	 * @param zStart starting z position
+	 * @param dir the direction
+	 * @param delta flat index delta of the direction
+	 * @return if the word is there
+	 */
+	private boolean matches(String word, int xStart, int yStart, int zStart, int[] dir, int delta){
+
+		// Words travel in a straight line, so if both ends are in bounds then every letter is
+		final int last = word.length() - 1;
+		if(!grid.isInBounds(xStart + last * dir[0], yStart + last * dir[1], zStart + last * dir[2])){
+			return false;
+		}
+
+		int index = grid.index(xStart, yStart, zStart) + delta;
+		for(int i = 1; i <= last; i++, index += delta){
+			final char current = grid.get(index);
+			if(current != '\u0000' && current != word.charAt(i)){
+				return false;
+			}
+		}
+		return true;
+	}
+}
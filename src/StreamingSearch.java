@@ -0,0 +1,183 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Searches a binary grid file (see {@link BinaryGridIO}) a slab of x-planes at a time, so the grid never has to
+ * fit in memory and may have more cells than a {@link Grid3D} can hold.
+ * Each slab is read together with the planes within the longest word's length of it on either side, so every
+ * word that starts in the slab lies wholly inside what was read. Only hits starting in the slab are taken, and
+ * slabs go in order of x, so the results are exactly those of searching the whole grid at once.
+ * The window of planes lives in one direct buffer that is reused for every slab; planes shared with the last
+ * window are moved to the front rather than read again.
+ * Each search is reported to the metrics listener once, with the work done over every slab added up.
+ */
+public class StreamingSearch {
+
+	/** Window size used when none is given */
+	public static final long DEFAULT_WINDOW_BYTES = 64L << 20;
+
+	private final WordSearch3D wordSearch;
+	private final File file;
+	private final long windowBytes;
+
+	private final int sizeX;
+	private final int sizeY;
+	private final int sizeZ;
+
+	/**
+	 * @param wordSearch whose metrics listener is told of each search
+	 * @param file the binary grid file
+	 * @param windowBytes most bytes of the grid to hold at once; at least one slab plane and its neighbours are
+	 * always held, even if that is more
+	 * @throws IOException if the file can't be read or isn't a grid
+	 */
+	public StreamingSearch(WordSearch3D wordSearch, File file, long windowBytes) throws IOException {
+		this.wordSearch = wordSearch;
+		this.file = file;
+		this.windowBytes = windowBytes;
+		try (final FileChannel channel = new FileInputStream(file).getChannel()) {
+			final int[] sizes = BinaryGridIO.readHeader(channel);
+			sizeX = sizes[0];
+			sizeY = sizes[1];
+			sizeZ = sizes[2];
+		}
+		if((long) sizeY * sizeZ > Integer.MAX_VALUE){
+			throw new IOException("An x-plane of the grid is too large to hold: " + sizeY + "x" + sizeZ);
+		}
+	}
+
+	public int getSizeX(){
+		return sizeX;
+	}
+
+	public int getSizeY(){
+		return sizeY;
+	}
+
+	public int getSizeZ(){
+		return sizeZ;
+	}
+
+	/**
+	 * Searches for all the words in the specified list, reading through the file once
+	 * @param words the words to search for
+	 * @return for each word, the list of the (3-d) locations of its letters, or null if it is not in the grid
+	 * @throws IOException if the file can't be read
+	 */
+	public int[][][] searchForAll(String[] words) throws IOException {
+		final MetricsListener listener = wordSearch.getMetricsListener();
+		if(listener == null){
+			return searchForAll(words, null);
+		}
+
+		final long[] stats = new long[2];
+		final long start = System.nanoTime();
+		final int[][][] locations = searchForAll(words, stats);
+		int found = 0;
+		for(int[][] location : locations){
+			if(location != null){
+				found++;
+			}
+		}
+		listener.searchedAll(words.length, found, stats[0], stats[1], System.nanoTime() - start);
+		return locations;
+	}
+
+	/**
+	 * Searches for all the words in the specified list, counting the work done
+	 * @param stats if not null, gets the cells scanned and the directions probed added to its first two elements
+	 */
+	private int[][][] searchForAll(String[] words, long[] stats) throws IOException {
+		final int[][][] locations = new int[words.length][][];
+		int longest = 0;
+		int remaining = 0;
+		for(String word : words){
+			longest = Math.max(longest, word.length());
+			if(!word.isEmpty()){
+				remaining++;
+			}
+		}
+		final int plane = sizeY * sizeZ;
+		if(remaining == 0 || plane == 0){
+			return locations;
+		}
+
+		// Planes a word starting in a slab can reach on either side of it, and planes per slab
+		final int overlap = Math.min(longest - 1, sizeX);
+		final int slab = (int) Math.max(1, Math.min(sizeX, windowBytes / plane - 2L * overlap));
+		final long windowPlanes = Math.min(sizeX, slab + 2L * overlap);
+		if(windowPlanes * plane > Integer.MAX_VALUE){
+			throw new IOException("A slab and its neighbours are too large to hold: " + windowPlanes + " planes");
+		}
+		final ByteBuffer window = ByteBuffer.allocateDirect((int) (windowPlanes * plane));
+
+		try (final FileChannel channel = new FileInputStream(file).getChannel()) {
+
+			// The window holds planes [first, last)
+			int first = 0;
+			int last = 0;
+			for(int xFrom = 0; xFrom < sizeX && remaining > 0; xFrom += slab){
+				final int xTo = Math.min(sizeX, xFrom + slab);
+				final int wanted = Math.max(0, xFrom - overlap);
+				final int wantedEnd = Math.min(sizeX, xTo + overlap);
+
+				// Keep the planes already read, and read the rest
+				final int kept = Math.max(0, last - wanted);
+				window.limit((last - first) * plane);
+				window.position((last - first - kept) * plane);
+				window.compact();
+				long offset = BinaryGridIO.HEADER_SIZE + (long) Math.max(wanted, last) * plane;
+				window.limit((wantedEnd - wanted) * plane);
+				while(window.hasRemaining()){
+					final int read = channel.read(window, offset);
+					if(read < 0){
+						throw new IOException("Grid file ends early: " + file);
+					}
+					offset += read;
+				}
+				first = wanted;
+				last = wantedEnd;
+
+				window.flip();
+				final BufferGrid grid = new BufferGrid(window, last - first, sizeY, sizeZ);
+				for(int i = 0; i < words.length; i++){
+					if(locations[i] != null || words[i].isEmpty()){
+						continue;
+					}
+					final int[][] hit = WordSearch3D.scan(grid, words[i], xFrom - first, xTo - first, stats);
+					if(hit != null){
+						for(int[] letter : hit){
+							letter[0] += first;
+						}
+						locations[i] = hit;
+						remaining--;
+					}
+				}
+			}
+		}
+		return locations;
+	}
+
+	/**
+	 * Searches for the specified word
+	 * @param word the word to search for
+	 * @return If the grid contains the word, then the method returns a list of the (3-d) locations of its
+	 * letters; if not, null
+	 * @throws IOException if the file can't be read
+	 */
+	public int[][] search(String word) throws IOException {
+		final MetricsListener listener = wordSearch.getMetricsListener();
+		if(listener == null){
+			return searchForAll(new String[] { word }, null)[0];
+		}
+
+		final long[] stats = new long[2];
+		final long start = System.nanoTime();
+		final int[][] location = searchForAll(new String[] { word }, stats)[0];
+		listener.searched(word, stats[0], stats[1], location != null, System.nanoTime() - start);
+		return location;
+	}
+}
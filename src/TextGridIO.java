@@ -0,0 +1,377 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reads and writes grid.txt and locations.txt, in exactly the formats {@link WordSearch3D#exportGrid} and
+ * {@link WordSearch3D#exportLocations} have always used, but through large byte buffers with hand-written
+ * number and token handling instead of PrintWriter and Scanner.
+ * Text is in the platform's default charset, as before. ASCII characters, which is nearly everything in these
+ * files, are copied straight to and from bytes; anything else goes through the charset.
+ *
+ * grid.txt is the three sizes on one line, then for each x-plane a line of its characters, each followed by a
+ * space. locations.txt is the number of words, then for each word a line with its length and a line of the
+ * x, y and z of each of its letters, each followed by a space.
+ * Reading locations checks the word count against what the file could hold, and caps the letters over all the
+ * words at {@link BinaryLocationsIO#MAX_LETTERS}, before making arrays for them.
+ */
+public final class TextGridIO {
+
+	// Bytes moved to or from the file at a time
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private TextGridIO(){
+	}
+
+	/**
+	 * Writes a grid in the grid.txt format
+	 * @param grid a 3-d grid of characters
+	 * @param file the file to write
+	 * @throws IOException if the file can't be written
+	 */
+	public static void writeGrid(char[][][] grid, File file) throws IOException {
+		try (final TextWriter out = new TextWriter(new FileOutputStream(file))) {
+			out.writeInt(grid.length);  // height
+			out.writeByte(' ');
+			out.writeInt(grid[0].length);  // width
+			out.writeByte(' ');
+			out.writeInt(grid[0][0].length);  // depth
+			out.writeByte('\n');
+			for(char[][] plane : grid){
+				for(char[] row : plane){
+					for(char c : row){
+						out.writeChar(c);
+						out.writeByte(' ');
+					}
+				}
+				out.writeByte('\n');
+			}
+		}
+	}
+
+	/**
+	 * Writes a grid in the grid.txt format
+	 * @param grid the grid
+	 * @param file the file to write
+	 * @throws IOException if the file can't be written
+	 */
+	public static void writeGrid(Grid3D grid, File file) throws IOException {
+		try (final TextWriter out = new TextWriter(new FileOutputStream(file))) {
+			out.writeInt(grid.getSizeX());
+			out.writeByte(' ');
+			out.writeInt(grid.getSizeY());
+			out.writeByte(' ');
+			out.writeInt(grid.getSizeZ());
+			out.writeByte('\n');
+			final int plane = grid.getSizeY() * grid.getSizeZ();
+			for(int index = 0; index < grid.size(); index++){
+				out.writeChar(grid.get(index));
+				out.writeByte(' ');
+				if((index + 1) % plane == 0){
+					out.writeByte('\n');
+				}
+			}
+		}
+	}
+
+	/**
+	 * Appends a grid in the grid.txt format, for output that holds more than one grid
+	 * @param grid the grid
+	 * @param sb where to append it
+	 */
+	static void appendGrid(Grid3D grid, StringBuilder sb){
+		sb.append(grid.getSizeX()).append(' ').append(grid.getSizeY()).append(' ').append(grid.getSizeZ()).append('\n');
+		final int plane = grid.getSizeY() * grid.getSizeZ();
+		for(int index = 0; index < grid.size(); index++){
+			sb.append(grid.get(index)).append(' ');
+			if((index + 1) % plane == 0){
+				sb.append('\n');
+			}
+		}
+	}
+
+	/**
+	 * Reads a grid in the grid.txt format. Each cell is the first character of the next whitespace-separated token.
+	 * @param file the file to read
+	 * @return the grid
+	 * @throws IOException if the file can't be read or is malformed
+	 */
+	public static Grid3D readGrid(File file) throws IOException {
+		try (final TextReader in = new TextReader(new FileInputStream(file))) {
+			final int sizeX = in.nextInt();
+			final int sizeY = in.nextInt();
+			final int sizeZ = in.nextInt();
+			final Grid3D grid;
+			try {
+				grid = new Grid3D(sizeX, sizeY, sizeZ);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Bad grid sizes in " + file, e);
+			}
+			for(int index = 0; index < grid.size(); index++){
+				grid.set(index, in.nextChar());
+			}
+			return grid;
+		}
+	}
+
+	/**
+	 * Writes the locations of the words that were found in the locations.txt format
+	 * @param locations for each word, the locations of its letters, or null if it wasn't found
+	 * @param file the file to write
+	 * @throws IOException if the file can't be written
+	 */
+	public static void writeLocations(int[][][] locations, File file) throws IOException {
+		// First determine how many non-null locations we have
+		int numLocations = 0;
+		for(int[][] location : locations){
+			if(location != null){
+				numLocations++;
+			}
+		}
+
+		try (final TextWriter out = new TextWriter(new FileOutputStream(file))) {
+			out.writeInt(numLocations);  // number of words
+			out.writeByte('\n');
+			for(int[][] location : locations){
+				if(location != null){
+					out.writeInt(location.length);  // number of characters in the word
+					out.writeByte('\n');
+					for(int[] letter : location){
+						for(int k = 0; k < 3; k++){  // 3-d coordinates
+							out.writeInt(letter[k]);
+							out.writeByte(' ');
+						}
+					}
+					out.writeByte('\n');
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads word locations in the locations.txt format
+	 * @param file the file to read
+	 * @return for each word in the file, the (3-d) locations of its letters
+	 * @throws IOException if the file can't be read, is malformed, or holds more than
+	 * {@link BinaryLocationsIO#MAX_LETTERS} letters in all
+	 */
+	public static int[][][] readLocations(File file) throws IOException {
+		try (final TextReader in = new TextReader(new FileInputStream(file))) {
+			final int numWords = in.nextInt();
+			if(numWords < 0){
+				throw new IOException("Negative word count in " + file);
+			}
+
+			// Every word takes at least a digit and a separator for its length
+			if(numWords > (file.length() + 1) / 2){
+				throw new IOException("Word count " + numWords + " is more than " + file + " could hold");
+			}
+			final int[][][] locations = new int[numWords][][];
+			long totalLetters = 0;
+			for(int i = 0; i < numWords; i++){
+				final int wordLen = in.nextInt();
+				if(wordLen < 0){
+					throw new IOException("Negative word length in " + file);
+				}
+				totalLetters += wordLen;
+				if(totalLetters > BinaryLocationsIO.MAX_LETTERS){
+					throw new IOException("More than " + BinaryLocationsIO.MAX_LETTERS + " letters in " + file);
+				}
+				locations[i] = new int[wordLen][3];
+				for(int[] letter : locations[i]){
+					for(int k = 0; k < 3; k++){
+						letter[k] = in.nextInt();
+					}
+				}
+			}
+			return locations;
+		}
+	}
+
+	/**
+	 * Buffers bytes on their way to a stream
+	 */
+	private static final class TextWriter implements AutoCloseable {
+		private final OutputStream out;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private final byte[] digits = new byte[11];
+		private final Charset charset = Charset.defaultCharset();
+		private int length;
+
+		TextWriter(OutputStream out){
+			this.out = out;
+		}
+
+		void writeByte(int b) throws IOException {
+			if(length == buffer.length){
+				flush();
+			}
+			buffer[length++] = (byte) b;
+		}
+
+		void writeChar(char c) throws IOException {
+			if(c < 0x80){
+				writeByte(c);
+				return;
+			}
+			final ByteBuffer encoded = charset.encode(CharBuffer.wrap(new char[] { c }));
+			while(encoded.hasRemaining()){
+				writeByte(encoded.get());
+			}
+		}
+
+		void writeInt(int value) throws IOException {
+			if(value == Integer.MIN_VALUE){
+				for(byte b : Integer.toString(value).getBytes(charset)){
+					writeByte(b);
+				}
+				return;
+			}
+			if(value < 0){
+				writeByte('-');
+				value = -value;
+			}
+			int n = 0;
+			do {
+				digits[n++] = (byte) ('0' + value % 10);
+				value /= 10;
+			} while(value != 0);
+			while(n > 0){
+				writeByte(digits[--n]);
+			}
+		}
+
+		private void flush() throws IOException {
+			out.write(buffer, 0, length);
+			length = 0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * Splits the bytes of a stream into whitespace-separated tokens
+	 */
+	private static final class TextReader implements AutoCloseable {
+		private final InputStream in;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private final Charset charset = Charset.defaultCharset();
+		private int position;
+		private int length;
+
+		// Bytes of a token that isn't plain ASCII, kept for decoding
+		private byte[] token = new byte[16];
+
+		TextReader(InputStream in){
+			this.in = in;
+		}
+
+		/**
+		 * @return the next token, read as an int
+		 */
+		int nextInt() throws IOException {
+			int b = skipWhitespace();
+			final boolean negative = b == '-';
+			if(negative){
+				b = read();
+			}
+			if(b < '0' || b > '9'){
+				throw new IOException("Expected a number");
+			}
+			long value = 0;
+			for(; b >= '0' && b <= '9'; b = read()){
+				value = value * 10 + (b - '0');
+				if(value > (long) Integer.MAX_VALUE + 1){
+					throw new IOException("Number is too large");
+				}
+			}
+			if(b >= 0 && !isWhitespace(b)){
+				throw new IOException("Expected a number");
+			}
+			value = negative ? -value : value;
+			if(value > Integer.MAX_VALUE){
+				throw new IOException("Number is too large");
+			}
+			return (int) value;
+		}
+
+		/**
+		 * @return the first character of the next token
+		 */
+		char nextChar() throws IOException {
+			final int first = skipWhitespace();
+			int b = first;
+			if(first < 0x80){
+				while(b >= 0 && !isWhitespace(b)){
+					b = read();
+				}
+				return (char) first;
+			}
+
+			// Decode the whole token, since the character may take several bytes
+			int n = 0;
+			while(b >= 0 && !isWhitespace(b)){
+				if(n == token.length){
+					token = Arrays.copyOf(token, n * 2);
+				}
+				token[n++] = (byte) b;
+				b = read();
+			}
+			final CharBuffer decoded = charset.decode(ByteBuffer.wrap(token, 0, n));
+			return decoded.hasRemaining() ? decoded.get() : (char) first;
+		}
+
+		/**
+		 * @return the first byte after any whitespace
+		 * @throws IOException if the stream ends first
+		 */
+		private int skipWhitespace() throws IOException {
+			int b = read();
+			while(b >= 0 && isWhitespace(b)){
+				b = read();
+			}
+			if(b < 0){
+				throw new IOException("File ends early");
+			}
+			return b;
+		}
+
+		/**
+		 * @return the next byte, or -1 at the end of the stream
+		 */
+		private int read() throws IOException {
+			if(position == length){
+				length = in.read(buffer);
+				position = 0;
+				if(length <= 0){
+					length = 0;
+					return -1;
+				}
+			}
+			return buffer[position++] & 0xFF;
+		}
+
+		private static boolean isWhitespace(int b){
+			return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0B;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -1,182 +1,225 @@
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
 import java.io.*;
 
 /**
  * Implements a 3-d word search puzzle program.
  */
 public class WordSearch3D {
+
+	// Most placements make checks before giving up on a word list; about as many as 1000 restarts of 26000 attempts
+	static final long MAX_PLACEMENT_CHECKS = 1000L * 26000;
+
+	// Told of the work done making and searching puzzles, if set
+	private volatile MetricsListener metrics;
+
 	public WordSearch3D () {
 	}
 
+	/**
+	 * Sets the listener told of the work done by make, search and searchForAll, and the generators that use them
+	 * @param metrics the listener, such as a {@link Metrics}, or null to stop counting
+	 */
+	public void setMetricsListener(MetricsListener metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return the listener told of the work done, or null if there is none
+	 */
+	public MetricsListener getMetricsListener() {
+		return metrics;
+	}
+
 	/**
 	 * Searches for all the words in the specified list in the specified grid.
-	 * You should not need to modify this method.
 	 * @param grid the grid of characters comprising the word search puzzle
 	 * @param words the words to search for
-	 *
+	 * @return for each word, the list of the (3-d) locations of its letters, or null if it is not in the grid
 	 */
 	public int[][][] searchForAll (char[][][] grid, String[] words) {
-		final int[][][] locations = new int[words.length][][];
-		for (int i = 0; i < words.length; i++) {
-			locations[i] = search(grid, words[i]);
-		}
-		return locations;
+		return searchForAll(Grid3D.fromArray(grid), words);
 	}
 
 	/**
-	 * Searches for the specified word in the specified grid.
+	 * Searches for all the words in the specified list in the specified flat grid.
+	 * All the words are found in a single pass over the grid, unless it has blank cells.
 	 * @param grid the grid of characters comprising the word search puzzle
-	 * @param word the word to search for
-	 * @return If the grid contains the
-	 * word, then the method returns a list of the (3-d) locations of its letters; if not, 
+	 * @param words the words to search for
+	 * @return for each word, the list of the (3-d) locations of its letters, or null if it is not in the grid
 	 */
-	public int[][] search (char[][][] grid, String word) {
-
-		// Loop through every point in the word search
-		for(int i = 0;i < grid.length; i++){
-			for(int j = 0; j < grid[0].length; j++){
-				for(int k = 0; k < grid[0][0].length; k++){
-
-					// Check if the value at the current position matches the first letter of the word
-					if(grid[i][j][k] == word.charAt(0)){
-
-						// If the first letter matches, search in all 26 directions for the word
-						int[][] result = loopThroughAllDirections(grid, word, i, j, k);
+	public int[][][] searchForAll (Grid3D grid, String[] words) {
+		final MetricsListener listener = metrics;
+		if(listener == null){
+			return searchForAll(grid, words, (long[]) null);
+		}
 
-						// If the result comes back not null, then the word was found
-						if(result != null){
-							return result;
-						}
-					}
-				}
+		final long[] stats = new long[2];
+		final long start = System.nanoTime();
+		final int[][][] locations = searchForAll(grid, words, stats);
+		int found = 0;
+		for (int[][] location : locations) {
+			if (location != null) {
+				found++;
 			}
 		}
-		return null;
+		listener.searchedAll(words.length, found, stats[0], stats[1], System.nanoTime() - start);
+		return locations;
 	}
 
 	/**
-	 * Loops through all 26 direction from a starting point & searches for the word in each of those directions.
-	 * @param grid the grid of character in the word search
-	 * @param word the word being searching for
-	 * @param xStart x coordinate of the starting position
-	 * @param yStart y coordinate of the starting position
-	 * @param zStart z coordinate of the starting position
-	 * @return if this starting value leads to the word, then return the position of the word in a list
+	 * Searches for all the words in the specified list in the specified flat grid, counting the work done
+	 * @param stats if not null, gets the cells scanned and the directions probed added to its first two elements
 	 */
-	private int[][] loopThroughAllDirections(char[][][] grid, String word, int xStart, int yStart, int zStart){
-
-		// Loops through the 26 possible directions to travel from a point in the grid
-		for(int xDir = -1; xDir < 2; xDir++){
-			for(int yDir = -1; yDir < 2; yDir++){
-				for(int zDir = -1; zDir < 2; zDir++){
-
-					// If the direction is invalid, then skip
-					if(xDir == 0 && yDir == 0 && zDir == 0){
-						continue;
-					}
-
-					// Checks for the word in the current direction
-					int[][] result = checkDirection(grid, word, xStart, yStart, zStart, xDir, yDir, zDir);
-
-					// If the result is non-null, than we have located a valid result
-					if(result != null){
-						return result;
-					}
-				}
+	private int[][][] searchForAll (Grid3D grid, String[] words, long[] stats) {
+
+		// Blank cells match any letter, which the multi-word automaton can't express
+		if(grid.hasBlanks()){
+			final SearchableGrid searchable = SearchableGrid.wrap(grid, null);
+			final int[][][] locations = new int[words.length][][];
+			for (int i = 0; i < words.length; i++) {
+				locations[i] = searchable.scan(words[i], 0, grid.getSizeX(), stats);
 			}
+			return locations;
+		}
+
+		// The automaton reads every cell once in each direction
+		if(stats != null){
+			stats[0] += (long) grid.size() * Grid3D.DIRECTIONS.length;
 		}
-		return null;
+		return new AhoCorasickSearch(words).searchForAll(grid);
 	}
 
 	/**
-	 * Checks for the existence of the word from a starting point and direction in the grid
-	 * @param grid the grid of character in the word search
-	 * @param word the word being searched for
-	 * @param xStart starting x position
-	 * @param yStart starting y position
-	 * @param zStart starting z position
-	 * @param xDir x Direction {-1, 0, 1}
-	 * @param yDir y Direction {-1, 0, 1}
-	 * @param zDir z Direction {-1, 0, 1}
-	 * @return if this starting value leads to the word, then return the position of the word in a list
+	 * Searches for all the words in the specified list in the specified flat grid, using a prebuilt index of
+	 * the grid to only visit cells matching the first letter of each word.
+	 * Falls back to a single pass over the whole grid when that would visit fewer cells.
+	 * @param grid the grid of characters comprising the word search puzzle
+	 * @param words the words to search for
+	 * @param index index of the grid
+	 * @return for each word, the list of the (3-d) locations of its letters, or null if it is not in the grid
 	 */
-	private int[][] checkDirection(char[][][] grid, String word, int xStart, int yStart, int zStart, int xDir, int yDir, int zDir){
-
-		// Create a result array
-		int[][] result = new int[word.length()][3];
-
-		// Loop through the characters in the word & check if the next letter in the direction continues to match the word
-		if(!isValidWordPlacement(grid, word, xStart, yStart, zStart, xDir, yDir, zDir)){
-			return null;
-		}
+	public int[][][] searchForAll (Grid3D grid, String[] words, CharIndex index) {
+		return SearchableGrid.wrap(grid, index).searchAll(words);
+	}
 
-		for(int i = 0; i < word.length(); i++){
-			result[i][0] = xStart + i * xDir;
-			result[i][1] = yStart + i * yDir;
-			result[i][2] = zStart + i * zDir;
-		}
+	/**
+	 * Searches for all the words in the specified list in the specified grid, using every available core.
+	 * The result is the same as {@link #searchForAll(char[][][], String[])}.
+	 * @param grid the grid of characters comprising the word search puzzle
+	 * @param words the words to search for
+	 * @return for each word, the list of the (3-d) locations of its letters, or null if it is not in the grid
+	 */
+	public int[][][] parallelSearchForAll (char[][][] grid, String[] words) {
+		return parallelSearchForAll(grid, words, ParallelSearch.DEFAULT_PARALLELISM);
+	}
 
-		return result;
+	/**
+	 * Searches for all the words in the specified list in the specified grid, using several threads.
+	 * The result is the same as {@link #searchForAll(char[][][], String[])}.
+	 * @param grid the grid of characters comprising the word search puzzle
+	 * @param words the words to search for
+	 * @param parallelism number of threads to use
+	 * @return for each word, the list of the (3-d) locations of its letters, or null if it is not in the grid
+	 */
+	public int[][][] parallelSearchForAll (char[][][] grid, String[] words, int parallelism) {
+		return new ParallelSearch(this, parallelism).searchForAll(Grid3D.fromArray(grid), words);
 	}
 
 	/**
-	 * Checks if the word can be validly placed given a start & direction. Used in make & search.
-	 * @param grid word search puzzle
-	 * @param word word being placed
-	 * @param xStart starting x coordinate
-	 * @param yStart starting y coordinate
-	 * @param zStart starting z coordinate
-	 * @param xDir x direction
-	 * @param yDir y direction
-	 * @param zDir z direction
-	 * @return if the word can be validly placed
+	 * Searches for the specified word in the specified grid.
+	 * To search the same grid many times, use a {@link SearchableGrid} instead.
+	 * @param grid the grid of characters comprising the word search puzzle
+	 * @param word the word to search for
+	 * @return If the grid contains the
+	 * word, then the method returns a list of the (3-d) locations of its letters; if not, 
 	 */
-	private boolean isValidWordPlacement(char[][][] grid, String word, int xStart, int yStart, int zStart, int xDir, int yDir, int zDir){
+	public int[][] search (char[][][] grid, String word) {
+		return search(Grid3D.fromArray(grid), word);
+	}
 
-		for(int i = 0; i < word.length(); i++) {
+	/**
+	 * Searches for the specified word in the specified flat grid.
+	 * @param grid the grid of characters comprising the word search puzzle
+	 * @param word the word to search for
+	 * @return If the grid contains the word, then the method returns a list of the (3-d) locations of its letters;
+	 * if not, null
+	 */
+	public int[][] search (Grid3D grid, String word) {
+		return search(grid, word, 0, grid.getSizeX());
+	}
 
-			// Current position based on start position and direction
-			int xCurrent = xStart + i * xDir;
-			int yCurrent = yStart + i * yDir;
-			int zCurrent = zStart + i * zDir;
+	/**
+	 * Searches for the specified word in the specified flat grid, using a prebuilt index of the grid
+	 * to only visit the cells matching the first letter of the word.
+	 * @param grid the grid of characters comprising the word search puzzle
+	 * @param word the word to search for
+	 * @param index index of the grid
+	 * @return If the grid contains the word, then the method returns a list of the (3-d) locations of its letters;
+	 * if not, null
+	 */
+	public int[][] search (Grid3D grid, String word, CharIndex index) {
+		return SearchableGrid.wrap(grid, index).search(word);
+	}
 
-			// Return if out of bounds
-			if (!isValidPosition(grid, xCurrent, yCurrent, zCurrent)) {
-				return false;
-			}
+	/**
+	 * Finds every place the specified word occurs in the specified grid, rather than just the first.
+	 * A palindrome is found once for each way it reads.
+	 * @param grid the grid of characters comprising the word search puzzle
+	 * @param word the word to search for
+	 * @return the hits, in the order search tries them
+	 */
+	public HitList searchAllOccurrences (char[][][] grid, String word) {
+		final HitList hits = new HitList(word.length());
+		searchAllOccurrences(grid, word, hits);
+		return hits;
+	}
 
-			// Check if is a blank space
-			if(grid[xCurrent][yCurrent][zCurrent] == '\u0000'){
-				continue;
-			}
+	/**
+	 * Finds every place the specified word occurs in the specified grid, handing each one to a listener
+	 * as it is found instead of collecting them.
+	 * @param grid the grid of characters comprising the word search puzzle
+	 * @param word the word to search for
+	 * @param listener receives the hits, in the order search tries them
+	 * @return the number of hits
+	 */
+	public int searchAllOccurrences (char[][][] grid, String word, HitListener listener) {
+		return SearchableGrid.wrap(Grid3D.fromArray(grid), null).searchAllOccurrences(word, listener);
+	}
 
-			// Return if the letter doesn't match
-			if (grid[xCurrent][yCurrent][zCurrent] != word.charAt(i)) {
-				return false;
-			}
+	/**
+	 * Searches for the specified word, only trying start positions in a range of x-planes.
+	 * The rest of the word may extend outside the range.
+	 * @param grid the grid of characters comprising the word search puzzle
+	 * @param word the word to search for
+	 * @param xFrom first x-plane to start from
+	 * @param xTo x-plane after the last one to start from
+	 * @return If the grid contains the word starting in the range, then the method returns a list of the (3-d)
+	 * locations of its letters; if not, null
+	 */
+	int[][] search (Grid3D grid, String word, int xFrom, int xTo) {
+		final MetricsListener listener = metrics;
+		if(listener == null){
+			return scan(grid, word, xFrom, xTo, null);
 		}
-		return true;
+
+		final long[] stats = new long[2];
+		final long start = System.nanoTime();
+		final int[][] location = scan(grid, word, xFrom, xTo, stats);
+		listener.searched(word, stats[0], stats[1], location != null, System.nanoTime() - start);
+		return location;
 	}
 
 	/**
-	 * Checks if the position is in bounds of the grid
-	 * @param grid the grid used
-	 * @param x the x position
-	 * @param y the y position
-	 * @param z the z position
-	 * @return if the x,y,z coordinate is in bounds of the grid
+	 * Searches for the specified word like {@link #search(Grid3D, String, int, int)}, but counts the work done
+	 * instead of reporting it, for searches split into parts that report once for the whole
+	 * @param stats if not null, gets the cells scanned and the directions probed added to its first two elements
 	 */
-	private boolean isValidPosition(char[][][] grid, int x, int y, int z){
-
-		// Check if any of the coordinates are out of bounds
-		if(x < 0 || x >=  grid.length){
-			return false;
-		} else if(y < 0 || y >=  grid[0].length){
-			return false;
-		} else if(z < 0 || z >=  grid[0][0].length) {
-			return false;
-		}
-		return true;
+	static int[][] scan (Grid3D grid, String word, int xFrom, int xTo, long[] stats) {
+		return SearchableGrid.wrap(grid, null).scan(word, xFrom, xTo, stats);
 	}
 
 	/**
@@ -190,6 +233,37 @@ public class WordSearch3D {
 	 * no satisfying grid could be found.
 	 */
 	public char[][][] make(String[] words, int sizeX, int sizeY, int sizeZ) {
+		return make(words, sizeX, sizeY, sizeZ, new SplittableRandom());
+	}
+
+	/**
+	 * Tries to create a word search puzzle of the specified size with the specified
+	 * list of words. The same words, sizes and seed always give the same grid.
+	 * @param words the list of words to embed in the grid
+	 * @param sizeX size of the grid along first dimension
+	 * @param sizeY size of the grid along second dimension
+	 * @param sizeZ size of the grid along third dimension
+	 * @param seed seed for the placement of the words and the filler letters
+	 * @return a 3-d char array if successful that contains all the words, or <tt>null</tt> if
+	 * no satisfying grid could be found.
+	 */
+	public char[][][] make(String[] words, int sizeX, int sizeY, int sizeZ, long seed) {
+		return make(words, sizeX, sizeY, sizeZ, new SplittableRandom(seed));
+	}
+
+	/**
+	 * Tries to create a word search puzzle of the specified size with the specified
+	 * list of words. The grid depends only on the inputs and the values drawn from rng.
+	 * @param words the list of words to embed in the grid
+	 * @param sizeX size of the grid along first dimension
+	 * @param sizeY size of the grid along second dimension
+	 * @param sizeZ size of the grid along third dimension
+	 * @param rng random stream for the placement of the words and the filler letters; call split() on
+	 * a shared stream to give each thread its own
+	 * @return a 3-d char array if successful that contains all the words, or <tt>null</tt> if
+	 * no satisfying grid could be found.
+	 */
+	public char[][][] make(String[] words, int sizeX, int sizeY, int sizeZ, SplittableRandom rng) {
 
 		// Confirms that the inputs from the user are valid
 		if(sizeX <= 0 || sizeY <= 0 || sizeZ <= 0){
@@ -197,79 +271,153 @@ public class WordSearch3D {
 		}
 
 		// Create the wordSearch Grid
-		char[][][] wordSearch = new char[sizeX][sizeY][sizeZ];
-
-		// Create rng
-		final Random rng = new Random();
-
-		// Stores amount of attempts used to generate a grid using the word list
-		int overallCreationAttempts = 0;
-
-		// Confirm that none of the words are impossible to place in the grid alone (too long)
-		if(!checkFitWithinGrid(wordSearch, words)) {
+		final Grid3D wordSearch = new Grid3D(sizeX, sizeY, sizeZ);
+		if(!make(words, wordSearch, rng)){
 			return null;
 		}
 
-		// Loop through each word and attempt to place it in the grid
-		for(int i = 0; i < words.length; i++){
+		// Debug Statement: printGrid(wordSearch);
 
-			// If you failed to place the word after 1000 * 26 attempts, the restart the grid from scratch
-			// Max Attempts: Need to try 26 different directions per starting points, so to attempt 1000 starting points need about 26000 to cover most of them
-			if(!attemptPlacingWord(wordSearch, words[i], 1000 * 26, rng)){
+		return wordSearch.toArray();
+	}
 
-				// Reset & increment amount of creation attempts
-				i = 0;
-				wordSearch = new char[sizeX][sizeY][sizeZ];
-				overallCreationAttempts++;
+	/**
+	 * Tries to create a word search puzzle with the specified list of words in a grid that already exists,
+	 * such as one whose cells are off the heap ({@link BufferGrid}).
+	 * @param words the list of words to embed in the grid
+	 * @param wordSearch the grid, which must be all blank; it is left blank if no puzzle could be made
+	 * @param rng random stream for the placement of the words and the filler letters
+	 * @return if the grid now holds a puzzle containing all the words
+	 */
+	public boolean make(String[] words, Grid3D wordSearch, SplittableRandom rng) {
 
-				// If after 1000 attempts, no valid grid has been created, then return null
-				if(overallCreationAttempts>=1000){
-					return null;
-				}
-			}
+		// Confirm that none of the words are impossible to place in the grid alone (too long)
+		if(wordSearch.size() == 0 || !checkFitWithinGrid(wordSearch, words)) {
+			return false;
+		}
+
+		// Place every word, backtracking when one doesn't fit; if it runs out of placements, there's no grid
+		final PlacementEngine engine = new PlacementEngine(wordSearch, words, rng, MAX_PLACEMENT_CHECKS);
+		engine.setListener(metrics);
+		if(!engine.place()){
+			return false;
 		}
 
 		// Fill the grid with random chars
 		fillGrid(wordSearch, rng);
+		return true;
+	}
 
-		// Debug Statement: printGrid(wordSearch);
-
-		return wordSearch;
+	/**
+	 * Tries to create a word search puzzle of the specified size with the specified list of words, giving up
+	 * when the budget runs out. Instead of nothing, a failed attempt gives the grid with the most words it
+	 * managed to place at once, and says which words are missing. Those are always the longest words, placed
+	 * first; see {@link GenerationResult}.
+	 * @param words the list of words to embed in the grid
+	 * @param sizeX size of the grid along first dimension
+	 * @param sizeY size of the grid along second dimension
+	 * @param sizeZ size of the grid along third dimension
+	 * @param budget the checks, time and cancel token the attempt is bounded by
+	 * @return the grid and the words left out of it, or <tt>null</tt> if the sizes aren't all positive
+	 */
+	public GenerationResult make(String[] words, int sizeX, int sizeY, int sizeZ, GenerationBudget budget) {
+		return make(words, sizeX, sizeY, sizeZ, budget, new SplittableRandom());
 	}
 
 	/**
-	 * Generate random coordinates based on the size parameters
-	 * @param rng random
-	 * @param sizeX size of the grid in the x direction
-	 * @param sizeY size of the grid in the y direction
-	 * @param sizeZ size of the grid in the z direction
-	 * @return an int[] with the randomly generated coordinate
+	 * Tries to create a word search puzzle of the specified size with the specified list of words, giving up
+	 * when the budget runs out. Instead of nothing, a failed attempt gives the grid with the most words it
+	 * managed to place at once, and says which words are missing. Those are always the longest words, placed
+	 * first; see {@link GenerationResult}.
+	 * @param words the list of words to embed in the grid
+	 * @param sizeX size of the grid along first dimension
+	 * @param sizeY size of the grid along second dimension
+	 * @param sizeZ size of the grid along third dimension
+	 * @param budget the checks, time and cancel token the attempt is bounded by
+	 * @param rng random stream for the placement of the words and the filler letters
+	 * @return the grid and the words left out of it, or <tt>null</tt> if the sizes aren't all positive
 	 */
-	private int[] generateRandomCoordinate(Random rng, int sizeX, int sizeY, int sizeZ){
+	public GenerationResult make(String[] words, int sizeX, int sizeY, int sizeZ, GenerationBudget budget, SplittableRandom rng) {
+		final long start = System.nanoTime();
+		if(sizeX <= 0 || sizeY <= 0 || sizeZ <= 0){
+			return null;
+		}
+		final Grid3D wordSearch = new Grid3D(sizeX, sizeY, sizeZ);
+
+		// Words too long for the grid can never be placed, but needn't keep the others out
+		final int longestSide = Math.max(Math.max(sizeX, sizeY), sizeZ);
+		final List<String> fitting = new ArrayList<>();
+		for (String word : words) {
+			if (word.length() <= longestSide) {
+				fitting.add(word);
+			}
+		}
 
-		int[] result = new int[3];
+		final PlacementEngine engine = new PlacementEngine(wordSearch, fitting.toArray(new String[0]), rng, budget.getMaxChecks());
+		engine.setListener(metrics);
+		engine.setCancelToken(budget.getCancelToken());
+		engine.setKeepPartial(true);
+		if(budget.getTimeoutNanos() >= 0){
+			engine.setDeadline(start + budget.getTimeoutNanos());
+		}
+		engine.place();
+		fillGrid(wordSearch, rng);
 
-		result[0] = rng.nextInt(sizeX);
-		result[1] = rng.nextInt(sizeY);
-		result[2] = rng.nextInt(sizeZ);
+		// Whatever wasn't placed is missing, kept in the order given
+		final String[] placed = new String[engine.getPlacedCount()];
+		System.arraycopy(engine.getWords(), 0, placed, 0, placed.length);
+		final Map<String, Integer> placedCounts = new HashMap<>();
+		for (String word : placed) {
+			placedCounts.merge(word, 1, Integer::sum);
+		}
+		final List<String> unplaced = new ArrayList<>();
+		for (String word : words) {
+			final Integer count = placedCounts.get(word);
+			if (count == null || count == 0) {
+				unplaced.add(word);
+			}else {
+				placedCounts.put(word, count - 1);
+			}
+		}
 
-		return result;
+		GenerationResult.Outcome outcome = engine.getOutcome();
+		if(outcome == GenerationResult.Outcome.COMPLETE && !unplaced.isEmpty()){
+			outcome = GenerationResult.Outcome.IMPOSSIBLE;
+		}
+		return new GenerationResult(wordSearch, outcome, placed, unplaced.toArray(new String[0]));
 	}
 
 	/**
-	 * Generate a random direction
-	 * @param rng Random
-	 * @return a list of the random direction
+	 * Tries to create a word search puzzle of the specified size with the specified
+	 * list of words, running several attempts at once and keeping the first that succeeds.
+	 * @param words the list of words to embed in the grid
+	 * @param sizeX size of the grid along first dimension
+	 * @param sizeY size of the grid along second dimension
+	 * @param sizeZ size of the grid along third dimension
+	 * @return a 3-d char array if successful that contains all the words, or <tt>null</tt> if
+	 * no satisfying grid could be found.
 	 */
-	private int[] generateRandomDirection(Random rng){
-
-		int[] result = new int[3];
-
-		result[0] = rng.nextInt(3) - 1; // {-1, 0, 1}
-		result[1] = rng.nextInt(3) - 1; // {-1, 0, 1}
-		result[2] = rng.nextInt(3) - 1; // {-1, 0, 1}
+	public char[][][] parallelMake(String[] words, int sizeX, int sizeY, int sizeZ) {
+		return parallelMake(words, sizeX, sizeY, sizeZ, ParallelSearch.DEFAULT_PARALLELISM);
+	}
 
-		return result;
+	/**
+	 * Tries to create a word search puzzle of the specified size with the specified
+	 * list of words, running several attempts at once and keeping the first that succeeds.
+	 * @param words the list of words to embed in the grid
+	 * @param sizeX size of the grid along first dimension
+	 * @param sizeY size of the grid along second dimension
+	 * @param sizeZ size of the grid along third dimension
+	 * @param parallelism number of attempts to run at once
+	 * @return a 3-d char array if successful that contains all the words, or <tt>null</tt> if
+	 * no satisfying grid could be found.
+	 */
+	public char[][][] parallelMake(String[] words, int sizeX, int sizeY, int sizeZ, int parallelism) {
+		if(sizeX <= 0 || sizeY <= 0 || sizeZ <= 0){
+			return null;
+		}
+		final Grid3D wordSearch = new ParallelGenerator(this, parallelism).make(words, sizeX, sizeY, sizeZ, MAX_PLACEMENT_CHECKS);
+		return wordSearch == null ? null : wordSearch.toArray();
 	}
 
 	/**
@@ -278,9 +426,10 @@ public class WordSearch3D {
 	 * @param words list of all words that need to be placed
 	 * @return whether the all words can fit in the grid
 	 */
-	private boolean checkFitWithinGrid(char[][][] grid, String[] words){
+	private boolean checkFitWithinGrid(Grid3D grid, String[] words){
+		final int longestSide = Math.max(Math.max(grid.getSizeX(), grid.getSizeY()), grid.getSizeZ());
 		for(int i = 0; i < words.length; i++) {
-			if (words[i].length() > Math.max(Math.max(grid.length, grid[0].length), grid[0][0].length)) {
+			if (words[i].length() > longestSide) {
 				return false;
 			}
 		}
@@ -291,14 +440,14 @@ public class WordSearch3D {
 	 * Prints the grid for debugging purposes
 	 * @param grid the printed grid
 	 */
-	private void printGrid(char[][][] grid){
-		for(int i = 0; i < grid.length; i++){
-			for(int j = 0; j < grid[0].length; j++){
-				for(int k = 0; k < grid[0][0].length;k++){
-					if(grid[i][j][k] == '\u0000'){
+	private void printGrid(Grid3D grid){
+		for(int i = 0; i < grid.getSizeX(); i++){
+			for(int j = 0; j < grid.getSizeY(); j++){
+				for(int k = 0; k < grid.getSizeZ();k++){
+					if(grid.get(i, j, k) == '\u0000'){
 						System.out.print(".");
 					}else {
-						System.out.print(grid[i][j][k]);
+						System.out.print(grid.get(i, j, k));
 					}
 				}
 				System.out.println();
@@ -310,93 +459,16 @@ public class WordSearch3D {
 	/**
 	 * Fills untouched parts of the grid with random characters
 	 * @param grid grid that needs to be filled
-	 * @param rng Random
+	 * @param rng random stream for the characters
 	 */
-	private void fillGrid(char[][][] grid, Random rng){
-		for(int i = 0; i < grid.length; i++){
-			for(int j = 0; j < grid[0].length; j++){
-				for(int k = 0; k < grid[0][0].length;k++){
-					if(grid[i][j][k] == '\u0000') {
-						grid[i][j][k] = (char) (rng.nextInt(26) + 'a');
-					}
-				}
+	void fillGrid(Grid3D grid, SplittableRandom rng){
+		for(int index = 0; index < grid.size(); index++){
+			if(grid.get(index) == '\u0000') {
+				grid.set(index, (char) (rng.nextInt(26) + 'a'));
 			}
 		}
 	}
 
-	/**
-	 * Attempts placing a word in a grid a given amount of times
-	 * @param wordSearch grid used to place words into
-	 * @param word the word attempted to be placed
-	 * @param maxAttempts maximum number of attempts before giving up
-	 * @param rng Random
-	 * @return whether it successfully placed the word (true) or gave up (false)
-	 */
-	private boolean attemptPlacingWord(char[][][] wordSearch, String word, int maxAttempts, Random rng){
-
-		// Instantiate variables for use in the while loop
-		boolean success = false;
-		int failCounter = 0;
-
-		int[] newRandomCoordinate;
-		int[] newRandomDirection;
-
-		// Loop runs until the word is successfully placed or the word fails to be placed 10000 times
-		while(!success && failCounter < maxAttempts){
-
-			// Generate a random coordinate and direction
-			newRandomCoordinate = generateRandomCoordinate(rng, wordSearch.length, wordSearch[0].length, wordSearch[0][0].length);
-			newRandomDirection = generateRandomDirection(rng);
-
-			// Attempt to place the word in the grid
-			success = placeWordInGrid(wordSearch, word, newRandomCoordinate, newRandomDirection);
-
-			// Increment the fail counter
-			failCounter++;
-		}
-
-		// Return if it accomplished the task successfully
-		return failCounter < maxAttempts;
-	}
-
-	/**
-	 * Place a word in the grid based on a start coordinate and a direction
-	 * @param grid word search puzzle
-	 * @param word word being placed
-	 * @param startCoordinate list of start coordinates
-	 * @param direction list of directions
-	 * @return whether the task was successfully accomplished
-	 */
-	private boolean placeWordInGrid(char[][][] grid, String word, int[] startCoordinate, int[] direction){
-
-		int startX = startCoordinate[0];
-		int startY = startCoordinate[1];
-		int startZ = startCoordinate[2];
-
-		int dirX = direction[0];
-		int dirY = direction[1];
-		int dirZ = direction[2];
-
-		// Make sure the direction is valid
-		if(dirX == 0 && dirY == 0 && dirZ == 0){
-			return false;
-		}
-
-		// Loop through each character in the word
-		if(!isValidWordPlacement(grid, word, startX, startY, startZ, dirX, dirY, dirZ)){
-			return false;
-		}
-
-		// If every character would be placed at a valid location then add it to the grid
-		for(int i = 0; i < word.length(); i++){
-			grid[startX + i * dirX][startY + i * dirY][startZ + i * dirZ] = word.charAt(i);
-		}
-
-		// Debug Statement: printGrid(grid);
-
-		return true;
-	}
-
 	/**
 	 * Exports to a file the list of lists of 3-d coordinates.
 	 * You should not need to modify this method.
@@ -404,33 +476,10 @@ public class WordSearch3D {
 	 * @param filename what to name the exported file.
 	 */
 	public static void exportLocations (int[][][] locations, String filename) {
-		// First determine how many non-null locations we have
-		int numLocations = 0;
-		for (int i = 0; i < locations.length; i++) {
-			if (locations[i] != null) {
-				numLocations++;
-			}
-		}
-
-		try (final PrintWriter pw = new PrintWriter(filename)) {
-			pw.print(numLocations);  // number of words
-			pw.print('\n');
-			for (int i = 0; i < locations.length; i++) {
-				if (locations[i] != null) {
-					pw.print(locations[i].length);  // number of characters in the word
-					pw.print('\n');
-					for (int j = 0; j < locations[i].length; j++) {
-						for (int k = 0; k < 3; k++) {  // 3-d coordinates
-							pw.print(locations[i][j][k]);
-							pw.print(' ');
-						}
-					}
-					pw.print('\n');
-				}
-			}
-			pw.close();
-		} catch (FileNotFoundException fnfe) {
-			fnfe.printStackTrace();
+		try {
+			TextGridIO.writeLocations(locations, new File(filename));
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
 		}
 	}
 
@@ -441,25 +490,10 @@ public class WordSearch3D {
 	 * @param filename what to name the exported file.
 	 */
 	public static void exportGrid (char[][][] grid, String filename) {
-		try (final PrintWriter pw = new PrintWriter(filename)) {
-			pw.print(grid.length);  // height
-			pw.print(' ');
-			pw.print(grid[0].length);  // width
-			pw.print(' ');
-			pw.print(grid[0][0].length);  // depth
-			pw.print('\n');
-			for (int x = 0; x < grid.length; x++) {
-				for (int y = 0; y < grid[0].length; y++) {
-					for (int z = 0; z < grid[0][0].length; z++) {
-						pw.print(grid[x][y][z]);
-						pw.print(' ');
-					}
-				}
-				pw.print('\n');
-			}
-			pw.close();
-		} catch (FileNotFoundException fnfe) {
-			fnfe.printStackTrace();
+		try {
+			TextGridIO.writeGrid(grid, new File(filename));
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
 		}
 	}
 
@@ -467,9 +501,34 @@ public class WordSearch3D {
 	 * Creates a 3-d word search puzzle with some nicely chosen fruits and vegetables,
 	 * and then exports the resulting puzzle and its solution to grid.txt and locations.txt
 	 * files.
+	 * Run with "--batch jobs.txt puzzles.txt [threads [seed]]" to instead generate a puzzle for every line of a
+	 * job list, as described in {@link BatchGenerator}. The same seed gives the same puzzles.
+	 * Run with "--serve grid.txt port" to instead answer searches of a grid over HTTP, as described in
+	 * {@link SearchServer}.
 	 */
 	public static void main (String[] args) {
 		final WordSearch3D wordSearch = new WordSearch3D();
+		if (args.length >= 3 && args[0].equals("--batch")) {
+			final int threads = args.length > 3 ? Integer.parseInt(args[3]) : ParallelSearch.DEFAULT_PARALLELISM;
+			final long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+			final BatchGenerator batch = new BatchGenerator(wordSearch, threads, threads * 4, MAX_PLACEMENT_CHECKS, seed);
+			try (final BufferedReader jobs = new BufferedReader(new FileReader(args[1]));
+				 final Writer out = new BufferedWriter(new FileWriter(args[2]))) {
+				final int generated = batch.generate(jobs, out);
+				System.out.println("Generated " + generated + " puzzles");
+			} catch (IOException ioe) {
+				ioe.printStackTrace();
+			}
+			return;
+		}
+		if (args.length >= 3 && args[0].equals("--serve")) {
+			try {
+				SearchServer.main(new String[] { args[1], args[2] });
+			} catch (IOException ioe) {
+				ioe.printStackTrace();
+			}
+			return;
+		}
 		final String[] words = new String[] { "apple" , "orange", "pear", "peach", "durian", "lemon", "lime", "jackfruit", "plum", "grape", "apricot", "blueberry", "tangerine", "coconut", "mango", "lychee", "guava", "strawberry", "kiwi", "kumquat", "persimmon", "papaya", "longan", "eggplant", "cucumber", "tomato", "zucchini", "olive", "pea", "pumpkin", "cherry", "date", "nectarine", "breadfruit", "sapodilla", "rowan", "quince", "toyon", "sorb", "medlar" };
 		final int xSize = 10, ySize = 10, zSize = 10;
  		final char[][][] grid = wordSearch.make(words, xSize, ySize, zSize);
@@ -194,16 +194,23 @@ public class WordSearchApp extends Application {
 		final String locationsFilename = getParameters().getNamed().get("locations");
 		System.out.println(locationsFilename);
 		if (locationsFilename != null) {  // If user gave us a list of locations
-			final Scanner s = new Scanner(new File(locationsFilename));
-			final int numWords = s.nextInt();
-			for (int i = 0; i < numWords; i++) {
-				final int wordLen = s.nextInt();  // number of characters in the word
+			final File locationsFile = new File(locationsFilename);
+
+			// Binary locations hold each word as a start, direction and length
+			final int[][][] words;
+			try {
+				words = BinaryLocationsIO.isBinaryLocations(locationsFile)
+						? BinaryLocationsIO.read(locationsFile)
+						: TextGridIO.readLocations(locationsFile);
+			} catch (FileNotFoundException e) {
+				throw e;
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Could not read locations " + locationsFilename, e);
+			}
+			for (int[][] word : words) {
 				final Color color = Color.rgb(rng.nextInt(255), rng.nextInt(255), rng.nextInt(255),0.5);
-				for (int j = 0; j < wordLen; j++) {
-					final int x = s.nextInt();
-					final int y = s.nextInt();
-					final int z = s.nextInt();
-					locations.put(new Tuple(x, y, z), color);
+				for (int[] letter : word) {
+					locations.put(new Tuple(letter[0], letter[1], letter[2]), color);
 				}
 			}
 		}
@@ -220,22 +227,19 @@ public class WordSearchApp extends Application {
 		if (gridFilename == null) {
 			throw new IllegalArgumentException("No \"grid\" in parameters list");
 		}
-		final Scanner s = new Scanner(new File(gridFilename));
-		// First scan for the size of the grid
-		final int sizeX = s.nextInt();
-		final int sizeY = s.nextInt();
-		final int sizeZ = s.nextInt();
-		final char[][][] grid = new char[sizeX][sizeY][sizeZ];
-		// Now scan for the characters in the grid
-		for (int x = 0; x < sizeX; x++) {
-			for (int y = 0; y < sizeY; y++) {
-				for (int z = 0; z < sizeZ; z++) {
-					final String str = s.next();
-					grid[x][y][z] = str.charAt(0);
-				}
+
+		// Binary grids are mapped rather than parsed
+		final File gridFile = new File(gridFilename);
+		try {
+			if (BinaryGridIO.isBinaryGrid(gridFile)) {
+				return BinaryGridIO.map(gridFile).toArray();
 			}
+			return TextGridIO.readGrid(gridFile).toArray();
+		} catch (FileNotFoundException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Could not read grid " + gridFilename, e);
 		}
-		return grid;
 	}
 
 	/**
@@ -1,6 +1,7 @@
 import static org.junit.Assert.*;
 import org.junit.Before;
 import org.junit.Test;
+import java.io.*;
 import java.util.*;
 
 /**
@@ -209,6 +210,951 @@ public class WordSearchTester {
 		assertNotNull(grid);
 	}
 
+	@Test
+	/**
+	 * Verifies that converting a grid to the flat representation and back preserves every cell
+	 */
+	public void testGrid3DRoundTrip(){
+		final char[][][] grid = new char[][][] {
+				{ { 'a', 'b', 'c' }, { 'd', 'e', 'f' } },
+				{ { 'g', 'h', 'i' }, { 'j', 'k', 'l' } }
+		};
+		final Grid3D flat = Grid3D.fromArray(grid);
+		assertEquals(flat.getSizeX(), 2);
+		assertEquals(flat.getSizeY(), 2);
+		assertEquals(flat.getSizeZ(), 3);
+		assertEquals(flat.get(1, 0, 2), 'i');
+		assertEquals(flat.get(flat.index(1, 1, 0) + flat.delta(0, 0, 1)), 'k');
+		assertTrue(Arrays.deepEquals(grid, flat.toArray()));
+	}
+
+	@Test
+	/**
+	 * Verifies that searchForAll finds the same locations as searching for each word on its own,
+	 * including duplicate, absent and palindromic words
+	 */
+	public void testSearchForAllMatchesSearch(){
+		final String[] words = new String[] { "cat", "dog", "bird", "snake", "mouse", "cat", "xyzzy", "level", "o" };
+		final char[][][] grid = _wordSearch.make(new String[] { "cat", "dog", "bird", "snake", "mouse", "level" }, 6, 6, 6);
+		final int[][][] locations = _wordSearch.searchForAll(grid, words);
+		assertEquals(locations.length, words.length);
+		for(int i = 0; i < words.length; i++) {
+			assertTrue(Arrays.deepEquals(locations[i], _wordSearch.search(grid, words[i])));
+		}
+		assertNotNull(locations[0]);
+		assertNotSame(locations[0], locations[5]);
+	}
+
+	@Test
+	/**
+	 * Verifies that the parallel searchForAll returns exactly the same locations as the sequential one
+	 */
+	public void testParallelSearchForAll(){
+		final String[] words = new String[] { "cat", "dog", "bird", "snake", "mouse", "absent", "o" };
+		final char[][][] grid = _wordSearch.make(new String[] { "cat", "dog", "bird", "snake", "mouse" }, 7, 6, 5);
+		final int[][][] expected = _wordSearch.searchForAll(grid, words);
+		assertTrue(Arrays.deepEquals(expected, _wordSearch.parallelSearchForAll(grid, words, 3)));
+		assertTrue(Arrays.deepEquals(expected, _wordSearch.parallelSearchForAll(grid, words)));
+	}
+
+	@Test
+	/**
+	 * Verifies that searching with a first-letter index finds the same locations as a full scan
+	 */
+	public void testIndexedSearch(){
+		final String[] words = new String[] { "cat", "dog", "bird", "snake", "mouse", "absent" };
+		final Grid3D grid = Grid3D.fromArray(_wordSearch.make(new String[] { "cat", "dog", "bird", "snake", "mouse" }, 5, 5, 5));
+		final CharIndex index = new CharIndex(grid);
+		int total = 0;
+		for(char c = 'a'; c <= 'z'; c++) {
+			total += index.count(c);
+		}
+		assertEquals(total, grid.size());
+		for(int i = 0; i < words.length; i++) {
+			assertTrue(Arrays.deepEquals(_wordSearch.search(grid, words[i]), _wordSearch.search(grid, words[i], index)));
+		}
+		assertTrue(Arrays.deepEquals(_wordSearch.searchForAll(grid, words), _wordSearch.searchForAll(grid, words, index)));
+	}
+
+	@Test
+	/**
+	 * Verifies that a SearchableGrid answers every kind of query consistently with search,
+	 * and is not affected by later changes to the array it was built from
+	 */
+	public void testSearchableGrid(){
+		final String[] words = new String[] { "cat", "dog", "bird", "snake", "mouse", "absent", "" };
+		final char[][][] grid = _wordSearch.make(new String[] { "cat", "dog", "bird", "snake", "mouse" }, 5, 5, 5);
+		final SearchableGrid searchable = new SearchableGrid(grid);
+		final int[][][] all = searchable.searchAll(words);
+		for(int i = 0; i < words.length; i++) {
+			final int[][] expected = words[i].isEmpty() ? null : _wordSearch.search(grid, words[i]);
+			assertTrue(Arrays.deepEquals(expected, searchable.search(words[i])));
+			assertTrue(Arrays.deepEquals(expected, all[i]));
+			assertEquals(expected != null, searchable.contains(words[i]));
+			assertTrue(Arrays.deepEquals(expected, searchable.searchAlongLines(words[i])));
+			assertEquals(expected != null, searchable.containsAlongLines(words[i]));
+		}
+		grid[0][0][0] = '#';
+		assertFalse(searchable.contains("#"));
+	}
+
+	@Test
+	/**
+	 * Verifies that searching into a hit buffer gives the same locations as search
+	 */
+	public void testSearchIntoBuffer(){
+		final String[] words = new String[] { "cat", "absent", "bat" };
+		final char[][][] grid = new char[][][] { { { 'c', 'a', 't' },
+													{ 'd', 't', 'j' },
+													{ 'o', 'a', 'r' },
+													{ 'g', 'b', 'q' } } };
+		final SearchableGrid searchable = new SearchableGrid(grid);
+		final int[] hits = new int[words.length * SearchableGrid.HIT_SIZE];
+		assertEquals(searchable.searchAll(words, hits), 2);
+		assertTrue(Arrays.deepEquals(SearchableGrid.toLocations(hits, 0, 3), _wordSearch.search(grid, "cat")));
+		assertEquals(hits[SearchableGrid.HIT_SIZE], -1);
+		assertTrue(Arrays.deepEquals(SearchableGrid.toLocations(hits, 2 * SearchableGrid.HIT_SIZE, 3), _wordSearch.search(grid, "bat")));
+	}
+
+	@Test
+	/**
+	 * Verifies that the filter lets through words in a grid and rejects words with letters
+	 * that never sit next to each other in a line
+	 */
+	public void testNGramFilter(){
+		final char[][][] grid = new char[][][] { { { 'c', 'a', 't' },
+													{ 'd', 't', 'j' },
+													{ 'o', 'a', 'r' },
+													{ 'g', 'b', 'q' } } };
+		final NGramFilter filter = new NGramFilter(Grid3D.fromArray(grid));
+		assertTrue(filter.mightContain("cat"));
+		assertTrue(filter.mightContain("tac"));
+		assertTrue(filter.mightContain("bat"));
+		assertTrue(filter.mightContain("cd"));
+		assertTrue(filter.mightContain("dog"));
+		assertFalse(filter.mightContain("cq"));
+		assertFalse(filter.mightContain("jq"));
+
+		// Every pair of letters in this word sits next to each other somewhere, but not all in one line
+		assertFalse(filter.mightContain("cata"));
+
+		grid[0][0][0] = '\u0000';
+		assertTrue(new NGramFilter(Grid3D.fromArray(grid)).mightContain("jq"));
+	}
+
+	@Test
+	/**
+	 * Verifies that every word placed by make passes the filter of longer runs used for bigger grids
+	 */
+	public void testNGramFilterLargeGrid(){
+		final String[] words = new String[] { "strawberry", "blueberry", "tangerine", "persimmon", "breadfruit" };
+		final char[][][] grid = _wordSearch.make(words, 12, 12, 12);
+		final NGramFilter filter = new NGramFilter(Grid3D.fromArray(grid));
+		for(int i = 0; i < words.length; i++) {
+			assertTrue(filter.mightContain(words[i]));
+			assertTrue(filter.mightContain(new StringBuilder(words[i]).reverse().toString()));
+		}
+	}
+
+	@Test
+	/**
+	 * Verifies that absent words are still rejected in a grid of a million random letters, where every pair of
+	 * letters sits next to each other somewhere and only the filter of longer runs can tell
+	 */
+	public void testNGramFilterRejectsInLargeGrid(){
+		final SplittableRandom random = new SplittableRandom(5);
+		final Grid3D grid = new Grid3D(100, 100, 100);
+		for(int index = 0; index < grid.size(); index++) {
+			grid.set(index, (char) ('a' + random.nextInt(26)));
+		}
+		final NGramFilter filter = new NGramFilter(grid);
+		for(int n = 0; n < 20; n++) {
+			final char[] letters = new char[10];
+			for(int i = 0; i < letters.length; i++) {
+				letters[i] = (char) ('a' + random.nextInt(26));
+			}
+			final String word = new String(letters);
+			assertNull(_wordSearch.search(grid, word));
+			assertFalse(filter.mightContain(word));
+		}
+		assertTrue(filter.mightContain(new String(new char[] { grid.get(0, 0, 0), grid.get(0, 0, 1), grid.get(0, 0, 2), grid.get(0, 0, 3), grid.get(0, 0, 4), grid.get(0, 0, 5), grid.get(0, 0, 6) })));
+	}
+
+	@Test
+	/**
+	 * Verifies that every occurrence of a word is found, including a palindrome in both directions,
+	 * and that the first one is the hit search returns
+	 */
+	public void testSearchAllOccurrences(){
+		final char[][][] grid = new char[][][] { { { 'p', 'o', 'p' },
+													{ 'o', 'x', 'o' },
+													{ 'p', 'o', 'p' } } };
+		final HitList hits = _wordSearch.searchAllOccurrences(grid, "pop");
+		assertEquals(hits.size(), 8);
+		assertTrue(Arrays.deepEquals(hits.toLocations(0), _wordSearch.search(grid, "pop")));
+		assertEquals(_wordSearch.searchAllOccurrences(grid, "x").size(), 1);
+		assertEquals(_wordSearch.searchAllOccurrences(grid, "pox").size(), 0);
+
+		final SearchableGrid searchable = new SearchableGrid(grid);
+		final int[] count = new int[1];
+		assertEquals(searchable.searchAllOccurrences("oxo", new HitListener() {
+			public void hit(int x, int y, int z, int direction) {
+				assertEquals(grid[x][y][z], 'o');
+				count[0]++;
+			}
+		}), 4);
+		assertEquals(count[0], 4);
+	}
+
+	@Test
+	/**
+	 * Verifies that a placement table lists exactly the placements that keep a word on the grid
+	 */
+	public void testPlacementTable(){
+		final Grid3D grid = new Grid3D(4, 3, 5);
+		for(int length = 1; length <= 6; length++) {
+			final PlacementTable table = new PlacementTable(grid, length);
+			final boolean[] seen = new boolean[grid.size() * Grid3D.DIRECTIONS.length];
+			for(long placement = 0; placement < table.size(); placement++) {
+				final int direction = table.direction(placement);
+				final int start = table.start(placement, direction);
+				final int[] dir = Grid3D.DIRECTIONS[direction];
+				final int last = length - 1;
+				assertTrue(grid.isInBounds(grid.x(start) + last * dir[0], grid.y(start) + last * dir[1], grid.z(start) + last * dir[2]));
+				assertFalse(seen[start * Grid3D.DIRECTIONS.length + direction]);
+				seen[start * Grid3D.DIRECTIONS.length + direction] = true;
+			}
+
+			int expected = 0;
+			for(int start = 0; start < grid.size(); start++) {
+				for(int d = 0; d < Grid3D.DIRECTIONS.length; d++) {
+					final int[] dir = Grid3D.DIRECTIONS[d];
+					if(grid.isInBounds(grid.x(start) + (length - 1) * dir[0], grid.y(start) + (length - 1) * dir[1], grid.z(start) + (length - 1) * dir[2])) {
+						expected++;
+					}
+				}
+			}
+			assertEquals(table.size(), expected);
+		}
+	}
+
+	@Test
+	/**
+	 * Verifies that parallel make builds grids holding every word, and gives up on impossible word lists
+	 */
+	public void testParallelMake(){
+		final String[] words = new String[] { "apple", "orange", "banana", "cherry", "grape", "lemon" };
+		final char[][][] grid = _wordSearch.parallelMake(words, 6, 6, 6, 4);
+		assertNotNull(grid);
+		final int[][][] locations = _wordSearch.searchForAll(grid, words);
+		for(int i = 0; i < words.length; i++) {
+			assertNotNull(locations[i]);
+		}
+
+		assertNull(_wordSearch.parallelMake(new String[] { "toolongforthegrid" }, 5, 5, 5, 4));
+		assertNull(_wordSearch.parallelMake(new String[] { "ab", "cd", "ef" }, 1, 1, 5, 4));
+		assertNull(_wordSearch.parallelMake(words, 0, 6, 6, 4));
+	}
+
+	@Test
+	/**
+	 * Verifies that a batch writes a grid holding every word for each job it can do, and marks the rest failed
+	 */
+	public void testBatchGenerator() throws IOException {
+		final String jobs = "# fruit\n6 6 6 apple pear plum\n\n4 5 6 kiwi lime\n2 2 2 toolong\n6 6 6 apple pear plum\n";
+		final StringWriter out = new StringWriter();
+		final BatchGenerator batch = new BatchGenerator(_wordSearch, 2, 2, 1000000, 42);
+		assertEquals(batch.generate(new BufferedReader(new StringReader(jobs)), out), 3);
+
+		final String[][] words = { { "apple", "pear", "plum" }, { "kiwi", "lime" }, null, { "apple", "pear", "plum" } };
+		final boolean[] seen = new boolean[words.length];
+		final Scanner scanner = new Scanner(out.toString());
+		while(scanner.hasNext()) {
+			assertEquals(scanner.next(), "job");
+			final int number = scanner.nextInt();
+			seen[number] = true;
+			if(scanner.hasNext("failed")) {
+				scanner.next();
+				assertNull(words[number]);
+				continue;
+			}
+			final char[][][] grid = new char[scanner.nextInt()][scanner.nextInt()][scanner.nextInt()];
+			for(int x = 0; x < grid.length; x++) {
+				for(int y = 0; y < grid[0].length; y++) {
+					for(int z = 0; z < grid[0][0].length; z++) {
+						grid[x][y][z] = scanner.next().charAt(0);
+					}
+				}
+			}
+			for(int[][] location : _wordSearch.searchForAll(grid, words[number])) {
+				assertNotNull(location);
+			}
+		}
+		assertTrue(seen[0] && seen[1] && seen[2] && seen[3]);
+	}
+
+	@Test
+	/**
+	 * Verifies that a batch job's grid is written one x-plane per line, so it reads back as a grid.txt file,
+	 * and that a malformed job line is thrown only after the jobs before it are written
+	 */
+	public void testBatchGeneratorFormat() throws IOException {
+		final StringWriter out = new StringWriter();
+		final BatchGenerator batch = new BatchGenerator(_wordSearch, 2, 2, 1000000, 42);
+		assertEquals(batch.generate(new BufferedReader(new StringReader("3 4 5 kiwi lime\n")), out), 1);
+		final String[] lines = out.toString().split("\n");
+		assertEquals(lines.length, 5);
+		assertEquals(lines[0], "job 0");
+
+		final File file = File.createTempFile("job", ".txt");
+		try {
+			try (final Writer grid = new FileWriter(file)) {
+				grid.write(out.toString().substring(lines[0].length() + 1));
+			}
+			final Grid3D grid = TextGridIO.readGrid(file);
+			assertEquals(grid.getSizeX(), 3);
+			assertEquals(grid.getSizeZ(), 5);
+			assertNotNull(_wordSearch.search(grid, "kiwi"));
+			assertNotNull(_wordSearch.search(grid, "lime"));
+		} finally {
+			file.delete();
+		}
+
+		final StringWriter partial = new StringWriter();
+		try {
+			batch.generate(new BufferedReader(new StringReader("4 4 4 kiwi\n4 4 4 lime\n4 x 4 pear\n4 4 4 plum\n")), partial);
+			fail("Expected the malformed line to be reported");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().startsWith("Job 2"));
+		}
+		assertTrue(partial.toString().contains("job 0\n") && partial.toString().contains("job 1\n"));
+		assertFalse(partial.toString().contains("job 3"));
+
+		// Sizes too large for one grid are malformed too
+		final StringWriter huge = new StringWriter();
+		try {
+			batch.generate(new BufferedReader(new StringReader("3 3 3 cat\n2000 2000 2000 dog\n3 3 3 pig\n")), huge);
+			fail("Expected the oversized job to be reported");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().startsWith("Job 1"));
+		}
+		assertTrue(huge.toString().contains("job 0\n"));
+	}
+
+	@Test
+	/**
+	 * Verifies that the same seed always makes the same grid, and that a different seed makes another
+	 */
+	public void testSeededMake(){
+		final String[] words = new String[] { "apple", "orange", "banana", "cherry", "grape", "lemon" };
+		final char[][][] first = _wordSearch.make(words, 7, 7, 7, 12345L);
+		assertNotNull(first);
+		assertTrue(Arrays.deepEquals(first, _wordSearch.make(words, 7, 7, 7, 12345L)));
+		assertTrue(Arrays.deepEquals(first, new WordSearch3D().make(words, 7, 7, 7, new SplittableRandom(12345L))));
+		assertFalse(Arrays.deepEquals(first, _wordSearch.make(words, 7, 7, 7, 54321L)));
+	}
+
+	@Test
+	/**
+	 * Verifies that the cache gives back what it was given, counts hits and misses, and reads saved grids back
+	 */
+	public void testPuzzleCache() throws IOException {
+		final File directory = java.nio.file.Files.createTempDirectory("puzzles").toFile();
+		final String[] words = new String[] { "apple", "orange", "banana", "cherry" };
+		final PuzzleCache cache = new PuzzleCache(_wordSearch, 3, directory);
+
+		final char[][][] grid = cache.make(words, 6, 6, 6, 7L);
+		assertTrue(Arrays.deepEquals(grid, _wordSearch.make(words, 6, 6, 6, 7L)));
+		grid[0][0][0] = '!';
+		assertTrue(Arrays.deepEquals(cache.make(words, 6, 6, 6, 7L), _wordSearch.make(words, 6, 6, 6, 7L)));
+		assertNull(cache.make(new String[] { "toolongforthegrid" }, 3, 3, 3, 7L));
+		assertNull(cache.make(new String[] { "toolongforthegrid" }, 3, 3, 3, 7L));
+		assertEquals(cache.getHits(), 2);
+		assertEquals(cache.getMisses(), 2);
+
+		// Only the saved copy is left once memory is cleared
+		cache.clear();
+		final PuzzleCache reopened = new PuzzleCache(_wordSearch, 2, directory);
+		assertTrue(Arrays.deepEquals(reopened.make(words, 6, 6, 6, 7L), _wordSearch.make(words, 6, 6, 6, 7L)));
+		assertNull(reopened.make(new String[] { "toolongforthegrid" }, 3, 3, 3, 7L));
+		assertEquals(reopened.getHits(), 2);
+		assertEquals(reopened.getMisses(), 0);
+
+		final char[][][] searched = _wordSearch.make(words, 6, 6, 6, 7L);
+		final String[] lookFor = new String[] { "apple", "zzzzzz", "cherry" };
+		final int[][][] expected = _wordSearch.searchForAll(searched, lookFor);
+		assertTrue(Arrays.deepEquals(cache.searchForAll(searched, lookFor), expected));
+		assertTrue(Arrays.deepEquals(cache.searchForAll(searched, lookFor), expected));
+		assertEquals(cache.getHits(), 2 + 3);
+		assertEquals(cache.getMisses(), 2 + 3);
+
+		// Saved files with sizes no grid can have are misses, and are made again
+		for(File file : directory.listFiles()) {
+			try (final DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+				out.writeInt(0);
+				out.writeInt(-5);
+				out.writeInt(6);
+			}
+		}
+		final PuzzleCache corrupt = new PuzzleCache(_wordSearch, 2, directory);
+		assertTrue(Arrays.deepEquals(corrupt.make(words, 6, 6, 6, 7L), _wordSearch.make(words, 6, 6, 6, 7L)));
+		assertEquals(corrupt.getHits(), 0);
+		assertEquals(corrupt.getMisses(), 1);
+
+		// Grids and search results are bounded separately
+		final PuzzleCache bounded = new PuzzleCache(_wordSearch, 1, 3, null);
+		bounded.make(words, 6, 6, 6, 7L);
+		bounded.make(words, 6, 6, 6, 8L);
+		bounded.searchForAll(searched, lookFor);
+		assertTrue(Arrays.deepEquals(bounded.searchForAll(searched, lookFor), expected));
+		bounded.make(words, 6, 6, 6, 7L);
+		assertEquals(bounded.getHits(), 3);
+		assertEquals(bounded.getMisses(), 2 + 3 + 1);
+
+		for(File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	/**
+	 * Verifies that binary grid files read and map back to the grid that was written, and can be searched in place
+	 */
+	public void testBinaryGridIO() throws IOException {
+		final File file = File.createTempFile("grid", ".bin");
+		try {
+			final Grid3D grid = Grid3D.fromArray(_wordSearch.make(new String[] { "apple", "pear", "plum" }, 4, 5, 6, 3L));
+			grid.set(1, 2, 3, '\u0000');
+			BinaryGridIO.write(grid, file);
+			assertEquals(file.length(), (long) BinaryGridIO.HEADER_SIZE + 4 * 5 * 6);
+			assertTrue(BinaryGridIO.isBinaryGrid(file));
+
+			assertTrue(Arrays.deepEquals(BinaryGridIO.read(file).toArray(), grid.toArray()));
+			final BufferGrid mapped = BinaryGridIO.map(file);
+			assertTrue(Arrays.deepEquals(mapped.toArray(), grid.toArray()));
+			assertTrue(Arrays.deepEquals(mapped.copy().toArray(), grid.toArray()));
+			assertTrue(mapped.hasBlanks());
+			assertEquals(mapped.get(1, 2, 3), '\u0000');
+			assertTrue(Arrays.deepEquals(_wordSearch.searchForAll(mapped, new String[] { "pear", "plum" }), _wordSearch.searchForAll(grid, new String[] { "pear", "plum" })));
+
+			WordSearch3D.exportGrid(grid.toArray(), file.getPath());
+			assertFalse(BinaryGridIO.isBinaryGrid(file));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	/**
+	 * Verifies that binary locations read back as written, and that converting locations.txt gives the same file
+	 */
+	public void testBinaryLocationsIO() throws IOException {
+		final File text = File.createTempFile("locations", ".txt");
+		final File binary = File.createTempFile("locations", ".bin");
+		final File converted = File.createTempFile("locations", ".bin");
+		try {
+			final String[] words = new String[] { "apple", "zzzzzz", "pear", "p", "plum" };
+			final int[][][] locations = _wordSearch.searchForAll(_wordSearch.make(new String[] { "apple", "pear", "plum" }, 5, 5, 5, 9L), words);
+			final int[][][] found = new int[][][] { locations[0], locations[2], locations[3], locations[4] };
+
+			BinaryLocationsIO.write(locations, binary);
+			assertEquals(binary.length(), (long) BinaryLocationsIO.HEADER_SIZE + 4 * BinaryLocationsIO.RECORD_SIZE);
+			assertTrue(BinaryLocationsIO.isBinaryLocations(binary));
+			assertTrue(Arrays.deepEquals(BinaryLocationsIO.read(binary), found));
+
+			WordSearch3D.exportLocations(locations, text.getPath());
+			assertFalse(BinaryLocationsIO.isBinaryLocations(text));
+			BinaryLocationsIO.convertText(text, converted);
+			assertTrue(Arrays.deepEquals(BinaryLocationsIO.read(converted), found));
+
+			// Counts and lengths that don't fit the file are refused before anything is made for them
+			final int[][] corrupt = new int[][] { { 4, Integer.MAX_VALUE }, { 8 + 2 * BinaryLocationsIO.RECORD_SIZE - 4, Integer.MAX_VALUE } };
+			for(int[] change : corrupt) {
+				try (final RandomAccessFile file = new RandomAccessFile(converted, "rw")) {
+					BinaryLocationsIO.write(locations, converted);
+					file.seek(change[0] + 4);
+					file.writeInt(change[1]);
+				}
+				try {
+					BinaryLocationsIO.read(converted);
+					fail("Expected a corrupt file to be refused");
+				} catch (IOException e) {
+					// Refused
+				}
+			}
+
+			// Letters that aren't in a line are refused before the file is opened, so it keeps what it held
+			try {
+				BinaryLocationsIO.write(new int[][][] { locations[0], { { 0, 0, 0 }, { 2, 0, 0 } } }, binary);
+				fail("Expected a bent word to be refused");
+			} catch (IllegalArgumentException e) {
+				// Refused
+			}
+			assertTrue(Arrays.deepEquals(BinaryLocationsIO.read(binary), found));
+		} finally {
+			text.delete();
+			binary.delete();
+			converted.delete();
+		}
+	}
+
+	@Test
+	/**
+	 * Verifies that searching a grid file slab by slab finds the same hits as searching the whole grid
+	 */
+	public void testStreamingSearch() throws IOException {
+		final File file = File.createTempFile("grid", ".bin");
+		try {
+			final String[] placed = new String[] { "apple", "orange", "banana", "cherry", "grape", "lemon" };
+			final Grid3D grid = Grid3D.fromArray(_wordSearch.make(placed, 9, 7, 6, 5L));
+			BinaryGridIO.write(grid, file);
+
+			final String[] words = new String[] { "apple", "orange", "banana", "cherry", "grape", "lemon", "", "zzzzzzz", "ap", "a" };
+			final int[][][] expected = _wordSearch.searchForAll(grid, words);
+			for(long windowBytes : new long[] { 1, 7 * 6, 7 * 6 * 12, StreamingSearch.DEFAULT_WINDOW_BYTES }) {
+				final StreamingSearch streaming = new StreamingSearch(_wordSearch, file, windowBytes);
+				assertTrue(Arrays.deepEquals(streaming.searchForAll(words), expected));
+				assertTrue(Arrays.deepEquals(streaming.search("cherry"), expected[3]));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	/**
+	 * Verifies that puzzles can be made and searched in grids stored off the heap, including a shared grid file
+	 */
+	public void testOffHeapGrid() throws IOException {
+		final String[] words = new String[] { "apple", "orange", "banana", "cherry" };
+		final char[][][] expected = _wordSearch.make(words, 6, 7, 8, 11L);
+
+		final BufferGrid direct = BufferGrid.allocateDirect(6, 7, 8);
+		assertTrue(_wordSearch.make(words, direct, new SplittableRandom(11L)));
+		assertTrue(Arrays.deepEquals(direct.toArray(), expected));
+		assertTrue(Arrays.deepEquals(_wordSearch.searchForAll(direct, words), _wordSearch.searchForAll(expected, words)));
+
+		final File file = File.createTempFile("grid", ".bin");
+		try {
+			final BufferGrid created = BinaryGridIO.create(file, 6, 7, 8);
+			assertTrue(created.hasBlanks());
+			assertTrue(_wordSearch.make(words, created, new SplittableRandom(11L)));
+
+			// A second mapping of the file sees the first one's writes
+			final BufferGrid shared = BinaryGridIO.mapWritable(file);
+			assertTrue(Arrays.deepEquals(shared.toArray(), expected));
+			shared.set(0, 0, 0, '#');
+			assertEquals(created.get(0, 0, 0), '#');
+			assertEquals(BinaryGridIO.map(file).get(0, 0, 0), '#');
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	/**
+	 * Verifies that the text grid and locations files read back as written, in the format Scanner reads them in
+	 */
+	public void testTextGridIO() throws IOException {
+		final File gridFile = File.createTempFile("grid", ".txt");
+		final File locationsFile = File.createTempFile("locations", ".txt");
+		try {
+			final char[][][] grid = _wordSearch.make(new String[] { "apple", "pear", "plum" }, 4, 6, 5, 13L);
+			final int[][][] locations = _wordSearch.searchForAll(grid, new String[] { "apple", "zzzzzz", "pear", "plum" });
+			WordSearch3D.exportGrid(grid, gridFile.getPath());
+			WordSearch3D.exportLocations(locations, locationsFile.getPath());
+
+			assertTrue(Arrays.deepEquals(TextGridIO.readGrid(gridFile).toArray(), grid));
+			assertTrue(Arrays.deepEquals(TextGridIO.readLocations(locationsFile), new int[][][] { locations[0], locations[2], locations[3] }));
+			TextGridIO.writeGrid(Grid3D.fromArray(grid), locationsFile);
+			assertTrue(Arrays.deepEquals(TextGridIO.readGrid(locationsFile).toArray(), grid));
+
+			// The sizes, then one line per x-plane with a space after every character
+			final List<String> lines = java.nio.file.Files.readAllLines(gridFile.toPath());
+			assertEquals(lines.size(), 1 + 4);
+			assertEquals(lines.get(0), "4 6 5");
+			for(int x = 0; x < 4; x++) {
+				assertEquals(lines.get(1 + x).length(), 6 * 5 * 2);
+			}
+
+			// Counts and lengths no file could back are refused before anything is made for them
+			for(String corrupt : new String[] { "2000000000\n1\n", "1\n" + Integer.MAX_VALUE + "\n", "2\n0\n\n" + (BinaryLocationsIO.MAX_LETTERS + 1) + "\n" }) {
+				java.nio.file.Files.write(locationsFile.toPath(), corrupt.getBytes("US-ASCII"));
+				try {
+					TextGridIO.readLocations(locationsFile);
+					fail("Expected a corrupt file to be refused");
+				} catch (IOException e) {
+					// Refused
+				}
+			}
+		} finally {
+			gridFile.delete();
+			locationsFile.delete();
+		}
+	}
+
+	@Test
+	/**
+	 * Verifies that a metrics listener is told of the placements, cells and directions of make and search,
+	 * and that its totals can be read over JMX
+	 */
+	public void testMetrics() throws Exception {
+		final Metrics metrics = new Metrics();
+		_wordSearch.setMetricsListener(metrics);
+
+		final String[] words = new String[] { "apple", "pear", "plum" };
+		assertNotNull(_wordSearch.make(words, 5, 5, 5, 7L));
+		assertEquals(metrics.getGenerations(), 1L);
+		assertEquals(metrics.getFailedGenerations(), 0L);
+		assertTrue(metrics.getWordsPlaced() >= 3);
+		assertTrue(metrics.getPlacementChecks() >= 3);
+		assertEquals(metrics.getSlowestGenerationWords(), "[apple, pear, plum]");
+
+		// One 'a' to try all 26 directions from, in three cells
+		final char[][][] grid = new char[][][] { { { 'c', 'a', 't' } } };
+		assertNull(_wordSearch.search(grid, "ax"));
+		assertEquals(metrics.getSearches(), 1L);
+		assertEquals(metrics.getCellsScanned(), 3L);
+		assertEquals(metrics.getDirectionsProbed(), 26L);
+
+		// Every cell read in every direction
+		_wordSearch.searchForAll(grid, new String[] { "at", "ax" });
+		assertEquals(metrics.getSearches(), 3L);
+		assertEquals(metrics.getHits(), 1L);
+		assertEquals(metrics.getCellsScanned(), 3L + 3 * 26);
+
+		metrics.register();
+		final javax.management.ObjectName name = new javax.management.ObjectName(Metrics.OBJECT_NAME);
+		assertEquals(java.lang.management.ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Hits"), 1L);
+		metrics.reset();
+		assertEquals(metrics.getSearches(), 0L);
+		assertNull(metrics.getSlowestWord());
+
+		// Words in a grid with blanks are looked for one at a time, probing directions
+		final char[][][] blank = new char[][][] { { { 'c', 'a', '\u0000' } } };
+		assertNotNull(_wordSearch.searchForAll(blank, new String[] { "at", "ax" })[0]);
+		assertEquals(metrics.getSearches(), 2L);
+		assertTrue(metrics.getDirectionsProbed() > 0);
+
+		// A word split into slabs across threads is still one search
+		metrics.reset();
+		final char[][][] large = new char[128][128][64];
+		for(char[][] plane : large) {
+			for(char[] row : plane) {
+				Arrays.fill(row, 'x');
+			}
+		}
+		assertNull(_wordSearch.parallelSearchForAll(large, new String[] { "ax" }, 4)[0]);
+		assertEquals(metrics.getSearches(), 1L);
+		assertEquals(metrics.getCellsScanned(), 128L * 128 * 64);
+
+		// Once the lowest slab has a hit, the slabs above it are skipped
+		metrics.reset();
+		large[0][0][0] = 'a';
+		assertTrue(Arrays.deepEquals(_wordSearch.parallelSearchForAll(large, new String[] { "ax" }, 4), _wordSearch.searchForAll(large, new String[] { "ax" })));
+		metrics.reset();
+		_wordSearch.parallelSearchForAll(large, new String[] { "ax" }, 4);
+		assertTrue(metrics.getCellsScanned() < 128L * 128 * 64);
+		metrics.reset();
+
+		// Nothing is counted once the listener is gone
+		_wordSearch.setMetricsListener(null);
+		_wordSearch.search(grid, "cat");
+		assertEquals(metrics.getSearches(), 0L);
+	}
+
+	@Test
+	/**
+	 * Verifies that a budgeted make stops when its checks, time or cancel token say so, and gives back the
+	 * grid with the words it placed and a list of those it didn't
+	 */
+	public void testBudgetedMake() {
+		final GenerationResult complete = _wordSearch.make(new String[] { "apple", "toolongforit", "pear" }, 5, 5, 5, GenerationBudget.DEFAULT);
+		assertEquals(complete.getOutcome(), GenerationResult.Outcome.IMPOSSIBLE);
+		assertEquals(Arrays.asList(complete.getUnplacedWords()), Arrays.asList("toolongforit"));
+		assertNotNull(_wordSearch.search(complete.toArray(), "apple"));
+		assertNotNull(_wordSearch.search(complete.toArray(), "pear"));
+
+		// Twelve words in 27 cells, which takes far more than 1024 placement checks
+		final String[] words = new String[] { "adf", "bia", "cbh", "dgc", "elj", "fee", "gjl", "hcg", "ihb", "jai", "kfd", "lkk" };
+		final CancelToken cancelled = new CancelToken();
+		cancelled.cancel();
+		final GenerationBudget[] budgets = new GenerationBudget[] {
+				GenerationBudget.DEFAULT.withMaxChecks(2000),
+				GenerationBudget.DEFAULT.withTimeout(0, java.util.concurrent.TimeUnit.MILLISECONDS),
+				GenerationBudget.DEFAULT.withCancelToken(cancelled) };
+		final GenerationResult.Outcome[] outcomes = new GenerationResult.Outcome[] {
+				GenerationResult.Outcome.OUT_OF_CHECKS, GenerationResult.Outcome.TIMED_OUT, GenerationResult.Outcome.CANCELLED };
+		for(int b = 0; b < budgets.length; b++) {
+			final GenerationResult partial = _wordSearch.make(words, 3, 3, 3, budgets[b], new SplittableRandom(1));
+			assertEquals(partial.getOutcome(), outcomes[b]);
+			assertFalse(partial.isComplete());
+			assertTrue(partial.getPlacedWords().length > 0);
+			assertEquals(partial.getPlacedWords().length + partial.getUnplacedWords().length, words.length);
+			for(String word : partial.getPlacedWords()) {
+				assertNotNull(_wordSearch.search(partial.toArray(), word));
+			}
+		}
+	}
+
+	@Test
+	/**
+	 * Verifies that the search server answers concurrent queries with the same locations as searchForAll,
+	 * sharing passes over the grid between them
+	 */
+	public void testSearchServer() throws Exception {
+		final String[] words = new String[] { "apple", "pear", "plum", "zzzzz" };
+		final char[][][] array = _wordSearch.make(Arrays.copyOf(words, 3), 6, 6, 6, 11L);
+		final int[][][] expected = _wordSearch.searchForAll(array, words);
+		final SearchServer server = new SearchServer(_wordSearch, Grid3D.fromArray(array), new java.net.InetSocketAddress("127.0.0.1", 0), null);
+		server.start();
+		try {
+			final String base = "http://127.0.0.1:" + server.getAddress().getPort();
+			final java.util.concurrent.ExecutorService clients = java.util.concurrent.Executors.newFixedThreadPool(8);
+			try {
+				final List<java.util.concurrent.Future<String>> answers = new ArrayList<>();
+				for(int i = 0; i < 32; i++) {
+					final String url = base + (i % 2 == 0 ? "/search?word=" + words[i % 4] : "/searchForAll?words=apple,pear,plum,zzzzz");
+					answers.add(clients.submit(new java.util.concurrent.Callable<String>() {
+						@Override
+						public String call() throws IOException {
+							try (final Scanner in = new Scanner(new java.net.URL(url).openStream(), "UTF-8")) {
+								return in.nextLine();
+							}
+						}
+					}));
+				}
+				for(int i = 0; i < answers.size(); i++) {
+					final String answer = answers.get(i).get();
+					for(int w = 0; w < words.length; w++) {
+						if(i % 2 == 0 && w != i % 4) {
+							continue;
+						}
+						String letters = "null";
+						if(expected[w] != null) {
+							letters = "";
+							for(int[] letter : expected[w]) {
+								letters += (letters.isEmpty() ? "[[" : ",[") + letter[0] + "," + letter[1] + "," + letter[2] + "]";
+							}
+							letters += "]";
+						}
+						assertTrue(answer.contains("\"" + words[w] + "\":" + letters));
+					}
+				}
+			} finally {
+				clients.shutdown();
+			}
+			assertEquals(server.getBatcher().getQueries(), 32L);
+			assertTrue(server.getBatcher().getPasses() <= 32);
+
+			// A body over the limit is refused without being searched
+			final java.net.HttpURLConnection post = (java.net.HttpURLConnection) new java.net.URL(base + "/searchForAll").openConnection();
+			post.setDoOutput(true);
+			post.setChunkedStreamingMode(8192);
+			try (final OutputStream out = post.getOutputStream()) {
+				final byte[] spaces = new byte[SearchServer.MAX_BODY_BYTES + 1];
+				Arrays.fill(spaces, (byte) ' ');
+				out.write(spaces);
+			}
+			assertEquals(post.getResponseCode(), 413);
+			assertEquals(server.getBatcher().getQueries(), 32L);
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	/**
+	 * Verifies that an error thrown during a batched pass reaches the caller instead of leaving it waiting,
+	 * and that the batcher still answers later queries
+	 */
+	public void testSearchBatcherError() {
+		final char[][][] array = _wordSearch.make(new String[] { "apple" }, 4, 4, 5, 3L);
+		final WordSearch3D failing = new WordSearch3D();
+		final SearchBatcher batcher = new SearchBatcher(failing, Grid3D.fromArray(array));
+		failing.setMetricsListener(new MetricsListener() {
+			@Override
+			public void searchedAll(int words, int found, long cellsScanned, long directionsProbed, long nanos) {
+				throw new StackOverflowError("listener");
+			}
+		});
+		try {
+			batcher.search("apple");
+			fail("Expected the error to be rethrown");
+		} catch (StackOverflowError e) {
+			assertEquals(e.getMessage(), "listener");
+		}
+		failing.setMetricsListener(null);
+		assertTrue(Arrays.deepEquals(batcher.search("apple"), _wordSearch.search(array, "apple")));
+		assertEquals(batcher.getPasses(), 2L);
+	}
+
+	@Test
+	/**
+	 * Verifies that an editable grid keeps the words it tracks up to date through cell changes, placed and
+	 * cleared words, giving the same locations as searchForAll on the changed grid
+	 */
+	public void testEditableGrid() {
+		final String[] words = new String[] { "cat", "dog", "at", "t", "cat" };
+		final char[][][] array = new char[][][] { { { 'c', 'a', 't' }, { 'x', 'x', 'x' }, { 'x', 'x', 'x' } },
+												  { { 'x', 'x', 'x' }, { 'x', 'x', 'x' }, { 'x', 'x', 'x' } } };
+		final EditableGrid grid = new EditableGrid(Grid3D.fromArray(array), words);
+		assertTrue(Arrays.deepEquals(grid.searchForAll(), _wordSearch.searchForAll(array, words)));
+		assertEquals(Arrays.asList(grid.getFoundWords()), Arrays.asList("cat", "at", "t"));
+		assertEquals(grid.count('x'), 15);
+
+		// Clearing a word keeps the letters of the words crossing it
+		assertNotNull(grid.clearWord("cat"));
+		assertEquals(grid.getCell(0, 0, 0), '\u0000');
+		assertEquals(grid.getCell(0, 0, 1), 'a');
+		assertNull(grid.search("cat"));
+		assertNotNull(grid.search("at"));
+
+		// Making a word, breaking it, and placing another word twice
+		final int[][] dog = grid.placeWord("dog", 1, 2, 0, 13);
+		assertTrue(Arrays.deepEquals(grid.search("dog"), dog));
+		grid.setCell(1, 2, 1, 'x');
+		assertNull(grid.search("dog"));
+		grid.placeWord("cat", 1, 0, 0, 13);
+		grid.placeWord("cat", 1, 1, 2, 12);
+		assertEquals(grid.countOccurrences("cat"), 2);
+		assertEquals(grid.count('x'), 7);
+		assertTrue(Arrays.deepEquals(grid.searchForAll(), _wordSearch.searchForAll(grid.toGrid(), words)));
+		assertTrue(Arrays.deepEquals(grid.search("ta"), _wordSearch.search(grid.toGrid(), "ta")));
+	}
+
+	@Test
+	/**
+	 * Verifies that clearing a word that shares its first letter with a crossing word takes it out of the grid,
+	 * even though blanks match any letter, and leaves the crossing word in place
+	 */
+	public void testEditableGridClearCrossingWord() {
+		final String[] words = new String[] { "cat", "cow" };
+		final EditableGrid grid = new EditableGrid(new Grid3D(1, 3, 3), words);
+		grid.placeWord("cat", 0, 0, 0, 13);
+		grid.placeWord("cow", 0, 0, 0, 15);
+
+		assertNotNull(grid.clearWord("cat"));
+		assertNull(grid.search("cat"));
+		assertEquals(grid.countOccurrences("cat"), 0);
+		assertEquals(grid.getCell(0, 0, 0), 'c');
+		assertNotNull(grid.search("cow"));
+		assertTrue(Arrays.deepEquals(grid.searchForAll(), _wordSearch.searchForAll(grid.toGrid(), words)));
+		assertNull(grid.clearWord("cat"));
+
+		// Nothing of a word lying wholly inside another can go without breaking it
+		final EditableGrid nested = new EditableGrid(new Grid3D(1, 1, 3), new String[] { "cat", "ca" });
+		nested.placeWord("cat", 0, 0, 0, 13);
+		try {
+			nested.clearWord("ca");
+			fail("clearWord should have refused");
+		} catch (IllegalStateException e) {
+			assertNotNull(nested.search("cat"));
+		}
+	}
+
+	@Test
+	/**
+	 * Verifies that the placement engine backs out of a first placement that blocks a later word.
+	 * In a line of three cells "ab" then "ca" only fit as "cab" or "bac", but half the places "ab" can go
+	 * first leave no room for "ca".
+	 */
+	public void testPlacementBacktracks(){
+		final int[] backtracks = new int[1];
+		for(long seed = 0; seed < 20; seed++) {
+			final Grid3D grid = new Grid3D(1, 1, 3);
+			final PlacementEngine engine = new PlacementEngine(grid, new String[] { "ab", "ca" }, new SplittableRandom(seed), 1000);
+			engine.setListener(new MetricsListener() {
+				@Override
+				public void backtracked(String word) {
+					assertEquals(word, "ab");
+					backtracks[0]++;
+				}
+			});
+			assertTrue(engine.place());
+			final String line = "" + grid.get(0) + grid.get(1) + grid.get(2);
+			assertTrue(line.equals("cab") || line.equals("bac"));
+		}
+		assertTrue(backtracks[0] > 0);
+	}
+
+	@Test
+	/**
+	 * Verifies that a search stuck below its first few placements starts again rather than using up its budget,
+	 * telling its listener each time.
+	 * With these seeds, a single run placing testMakeWithIntersection's words ran out of 26 million checks.
+	 */
+	public void testPlacementRestarts(){
+		final String[] words = new String[] { "amc", "dmf", "gmi", "jml", "nmo", "pmr", "smu", "vmx", "yma", "zmq" };
+		for(long seed : new long[] { 106, 147, 180 }) {
+			final PlacementEngine engine = new PlacementEngine(new Grid3D(3, 3, 3), words, new SplittableRandom(seed), WordSearch3D.MAX_PLACEMENT_CHECKS);
+			final Metrics metrics = new Metrics();
+			engine.setListener(metrics);
+			assertTrue(engine.place());
+			assertTrue(engine.getChecks() < WordSearch3D.MAX_PLACEMENT_CHECKS / 10);
+			assertTrue(metrics.getRestarts() > 0);
+			metrics.reset();
+			assertEquals(metrics.getRestarts(), 0L);
+		}
+	}
+
+	@Test
+	/**
+	 * Verifies that words that pass the quick length and letter-count checks, but can't all fit, are found
+	 * impossible by trying every placement: "ab", "bc" and "ca" need a cycle of neighbours a line can't have
+	 */
+	public void testPlacementExhausted(){
+		final String[] words = new String[] { "ab", "bc", "ca" };
+		assertNull(_wordSearch.make(words, 1, 1, 3));
+		final PlacementEngine engine = new PlacementEngine(new Grid3D(1, 1, 3), words, new SplittableRandom(1), 1000);
+		assertFalse(engine.place());
+		assertEquals(engine.getOutcome(), GenerationResult.Outcome.IMPOSSIBLE);
+		assertTrue(engine.getChecks() > 4);
+	}
+
+	@Test
+	/**
+	 * Verifies that a batcher allowed two passes at once runs them together: each pass's listener call waits
+	 * for the other's, which would time out if the passes ran one after the other
+	 */
+	public void testSearchBatcherConcurrentPasses() throws InterruptedException {
+		final char[][][] array = _wordSearch.make(new String[] { "apple", "pear" }, 4, 4, 5, 3L);
+		final WordSearch3D both = new WordSearch3D();
+		final java.util.concurrent.CyclicBarrier barrier = new java.util.concurrent.CyclicBarrier(2);
+		both.setMetricsListener(new MetricsListener() {
+			@Override
+			public void searchedAll(int words, int found, long cellsScanned, long directionsProbed, long nanos) {
+				try {
+					barrier.await(10, java.util.concurrent.TimeUnit.SECONDS);
+				} catch (Exception e) {
+					throw new IllegalStateException("Passes didn't overlap", e);
+				}
+			}
+		});
+		final SearchBatcher batcher = new SearchBatcher(both, Grid3D.fromArray(array), 2);
+		final String[] words = new String[] { "apple", "pear" };
+		final int[][][] results = new int[2][][];
+		final Thread[] threads = new Thread[2];
+		for(int t = 0; t < threads.length; t++){
+			final int n = t;
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					results[n] = batcher.search(words[n]);
+				}
+			});
+			threads[t].start();
+		}
+		for(Thread thread : threads){
+			thread.join();
+		}
+		for(int t = 0; t < threads.length; t++){
+			assertTrue(Arrays.deepEquals(results[t], _wordSearch.search(array, words[t])));
+		}
+		assertEquals(batcher.getPasses(), 2L);
+	}
+
 	@Before
 	/**
 	 * instantiates a wordSearch3D object for tests